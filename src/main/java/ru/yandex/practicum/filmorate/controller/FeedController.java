@@ -3,8 +3,10 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.service.FeedService;
 
@@ -18,6 +20,7 @@ import java.util.List;
 public class FeedController {
 
     private final FeedService feedService;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @PostMapping
     public void addEvent(@PathVariable("id") @Positive Long userId, @RequestBody Event event) {
@@ -39,4 +42,10 @@ public class FeedController {
         log.info("Лента событий для пользователя {} успешно получена ({} событий)", userId, feed.size());
         return feed;
     }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportUserFeed(@PathVariable("id") @Positive Long userId) {
+        log.info("Потоковая выгрузка ленты событий для пользователя с ID: {}", userId);
+        return jsonStreamWriter.writeArray(feedService.exportUserFeed(userId));
+    }
 }
@@ -4,9 +4,13 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.List;
@@ -17,16 +21,36 @@ import java.util.List;
 @Validated
 public class FilmController {
     private final FilmService filmService;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, JsonStreamWriter jsonStreamWriter) {
         this.filmService = filmService;
+        this.jsonStreamWriter = jsonStreamWriter;
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("Получение всех фильмов.");
-        return filmService.getAllFilms();
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(defaultValue = "full") String view) {
+        if (after == null && limit == null) {
+            log.info("Получение всех фильмов.");
+            return ResponseEntity.ok(filmService.applyView(filmService.getAllFilms(), view));
+        }
+        int pageSize = PageCursor.limit(limit);
+        log.info("Получение страницы фильмов после курсора '{}', размер {}", after, pageSize);
+        List<Film> films = filmService.applyView(filmService.getFilmsPage(PageCursor.decode(after), pageSize), view);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (films.size() == pageSize) {
+            response.header(PageCursor.HEADER, PageCursor.encode(films.get(films.size() - 1).getId()));
+        }
+        return response.body(films);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportFilms() {
+        log.info("Потоковая выгрузка всех фильмов.");
+        return jsonStreamWriter.writeArray(filmService::exportFilms);
     }
 
     @GetMapping("/{id}")
@@ -39,21 +63,24 @@ public class FilmController {
     public List<Film> getPopularFilms(
             @RequestParam(defaultValue = "10") Integer count,
             @RequestParam(required = false) Long genreId,
-            @RequestParam(required = false) Integer year) {
+            @RequestParam(required = false) Integer year,
+            @RequestParam(defaultValue = "full") String view) {
 
+        List<Film> films;
         if (genreId != null && year != null) {
             log.info("Получение {} популярных фильмов жанра ID:{} за {} год", count, genreId, year);
-            return filmService.getPopularFilmsByGenreAndYear(count, genreId, year);
+            films = filmService.getPopularFilmsByGenreAndYear(count, genreId, year);
         } else if (genreId != null) {
             log.info("Получение {} популярных фильмов жанра ID:{}", count, genreId);
-            return filmService.getPopularFilmsByGenre(count, genreId);
+            films = filmService.getPopularFilmsByGenre(count, genreId);
         } else if (year != null) {
             log.info("Получение {} популярных фильмов за {} год", count, year);
-            return filmService.getPopularFilmsByYear(count, year);
+            films = filmService.getPopularFilmsByYear(count, year);
         } else {
             log.info("Получение {} популярных фильмов", count);
-            return filmService.getPopularFilms(count);
+            films = filmService.getPopularFilms(count);
         }
+        return filmService.applyView(films, view);
     }
 
     @PostMapping
@@ -82,23 +109,37 @@ public class FilmController {
 
     @GetMapping("/common")
     public List<Film> getCommonFilms(@RequestParam("userId") @Positive Long userId,
-                                     @RequestParam("friendId") @Positive Long friendId) {
+                                     @RequestParam("friendId") @Positive Long friendId,
+                                     @RequestParam(defaultValue = "full") String view) {
         log.info("Получение общих фильмов для пользователей {} и {}", userId, friendId);
-        return filmService.getCommonLikedFilms(userId, friendId);
+        return filmService.applyView(filmService.getCommonLikedFilms(userId, friendId), view);
     }
 
     @GetMapping("/director/{directorId}")
     public List<Film> getFilmsListByDirectorSortedByLikesOrYear(@PathVariable @Positive Long directorId,
-                                                                @RequestParam String sortBy) {
+                                                                @RequestParam String sortBy,
+                                                                @RequestParam(defaultValue = "full") String view) {
         log.info("Список фильмов режисёра с ID {}, отсортированный по популярности и годам  ", directorId);
-        return filmService.getFilmsListByDirector(directorId, sortBy);
+        return filmService.applyView(filmService.getFilmsListByDirector(directorId, sortBy), view);
+    }
+
+    @GetMapping("/search/suggest")
+    public List<Suggestion> suggest(@RequestParam(required = false) String prefix,
+                                    @RequestParam(required = false) Integer limit) {
+        log.info("Подсказки для префикса '{}'", prefix);
+        return filmService.suggest(prefix, limit);
     }
 
     @GetMapping("/search")
     public List<Film> searchFilms(@RequestParam(required = false) String query,
-                                  @RequestParam(defaultValue = "title,director") String by) {
+                                  @RequestParam(defaultValue = "title,director") String by,
+                                  @RequestParam(defaultValue = "0") int offset,
+                                  @RequestParam(required = false) Integer limit,
+                                  @RequestParam(defaultValue = "full") String view) {
         log.info("Поиск фильмов по запросу: '{}', параметры: {}", query, by);
-        return filmService.searchFilms(query, by);
+        // Без limit возвращаются все найденные фильмы, как и раньше
+        int pageSize = limit != null ? PageCursor.limit(limit) : Integer.MAX_VALUE;
+        return filmService.applyView(filmService.searchFilms(query, by, offset, pageSize), view);
     }
 
     @DeleteMapping("/{id}")
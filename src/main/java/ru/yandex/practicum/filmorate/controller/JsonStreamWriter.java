@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Пишет JSON-массив в тело ответа по мере получения порций из хранилища,
+ * не собирая весь результат в памяти.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonStreamWriter {
+    private final ObjectMapper objectMapper;
+
+    public <T> StreamingResponseBody writeArray(Consumer<Consumer<List<T>>> source) {
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                source.accept(chunk -> {
+                    try {
+                        for (T item : chunk) {
+                            generator.writeObject(item);
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+}
@@ -7,8 +7,11 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmView;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
 import ru.yandex.practicum.filmorate.service.RecommendationService;
 
 import java.util.List;
@@ -26,7 +29,9 @@ public class RecommendationController {
     }
 
     @GetMapping("/{id}/recommendations")
-    public List<Film> getRecommendation(@PathVariable @Positive Long id) {
-        return recommendationService.getRecommendation(id);
+    public List<Film> getRecommendation(@PathVariable @Positive Long id,
+                                        @RequestParam(defaultValue = "items") String mode,
+                                        @RequestParam(defaultValue = "full") String view) {
+        return recommendationService.getRecommendation(id, RecommendationMode.from(mode), FilmView.from(view));
     }
 }
@@ -3,20 +3,30 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.FriendshipBatchResult;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
 
 /**
- * {@code GET /users} - Получение пользователей<br/>
+ * {@code GET /users} - Получение пользователей, {@code ?after=&limit=} - постранично<br/>
+ * {@code GET /users/export} - Потоковая выгрузка всех пользователей<br/>
  * {@code GET /users/{id}} - Получение пользователя<br/>
  * {@code GET /users/{id}/friends} - Получение друзей пользователя<br/>
  * {@code GET /users/{id}/friends/common/{otherId}} - Получение общих друзей пользователей<br/>
+ * {@code GET /users/{id}/friends/suggestions?limit=} - Возможные друзья по числу общих знакомых<br/>
+ * {@code GET /users/{id}/path/{otherId}?maxDepth=} - Кратчайшая цепочка друзей между пользователями<br/>
  * {@code POST /users} - Создание пользователя<br/>
  * {@code PUT /users} - Редактирование пользователя<br/>
  * {@code PUT /users/{id}/friends/{friendId}} - Добавление в друзья<br/>
+ * {@code POST /users/friends/batch} - Массовое добавление в друзья<br/>
  * {@code DELETE /users/{id}/friends/{friendId}} - Удаление из друзей<br/>
  */
 
@@ -26,16 +36,35 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, JsonStreamWriter jsonStreamWriter) {
         this.userService = userService;
+        this.jsonStreamWriter = jsonStreamWriter;
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
-        log.info("Получение всех пользователей.");
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Получение всех пользователей.");
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        int pageSize = PageCursor.limit(limit);
+        log.info("Получение страницы пользователей после курсора '{}', размер {}", after, pageSize);
+        List<User> users = userService.getUsersPage(PageCursor.decode(after), pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == pageSize) {
+            response.header(PageCursor.HEADER, PageCursor.encode(users.get(users.size() - 1).getId()));
+        }
+        return response.body(users);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportUsers() {
+        log.info("Потоковая выгрузка всех пользователей.");
+        return jsonStreamWriter.writeArray(userService::exportUsers);
     }
 
     @GetMapping("/{id}")
@@ -56,6 +85,19 @@ public class UserController {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable Long id, @RequestParam(defaultValue = "10") int limit) {
+        log.info("Получение возможных друзей пользователя с ID: {}", id);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/path/{otherId}")
+    public FriendshipPath getPath(@PathVariable Long id, @PathVariable Long otherId,
+                                  @RequestParam(required = false) Integer maxDepth) {
+        log.info("Поиск цепочки друзей от пользователя с ID: {} до пользователя с ID: {}", id, otherId);
+        return userService.getPath(id, otherId, maxDepth);
+    }
+
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
         log.info("Создание пользователя: {}", user);
@@ -74,6 +116,12 @@ public class UserController {
         userService.addFriend(id, friendId);
     }
 
+    @PostMapping("/friends/batch")
+    public FriendshipBatchResult addFriends(@RequestBody List<FriendshipEdge> edges) {
+        log.info("Массовое добавление в друзья: {} связей", edges.size());
+        return userService.addFriends(edges);
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFriend(@PathVariable Long id, @PathVariable Long friendId) {
         log.info("Пользователь с ID: {} удаляет из друзей пользователя с ID: {}", id, friendId);
@@ -28,6 +28,13 @@ public class GlobalExceptionHandler {
         return new ErrorResponse("Объект не найден", exception.getMessage());
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServiceUnavailableException(ServiceUnavailableException exception) {
+        log.warn("Сервис временно недоступен: {}", exception.getMessage());
+        return new ErrorResponse("Сервис временно недоступен", exception.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleException(Exception exception) {
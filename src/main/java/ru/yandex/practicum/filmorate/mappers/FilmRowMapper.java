@@ -2,15 +2,24 @@ package ru.yandex.practicum.filmorate.mappers;
 
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * Собирает фильм из одной строки выборки: жанры и режиссёры приходят
+ * в виде массивов genre_ids/genre_names и director_ids/director_names.
+ */
 @Component
 public class FilmRowMapper implements RowMapper<Film> {
 
@@ -25,6 +34,7 @@ public class FilmRowMapper implements RowMapper<Film> {
         film.setReleaseDate(releaseDate);
 
         film.setDuration(resultSet.getInt("duration"));
+        film.setLikesCount(resultSet.getInt("likes_count"));
 
         if (resultSet.getLong("mpa_id") != 0) {
             Mpa mpa = new Mpa();
@@ -32,9 +42,36 @@ public class FilmRowMapper implements RowMapper<Film> {
             mpa.setName(resultSet.getString("mpa_name"));
             film.setMpa(mpa);
         }
-        film.setGenres(new HashSet<>());
-        film.setLikes(new HashSet<>());
-        film.setDirectors(new ArrayList<>());
+
+        Object[] genreIds = toArray(resultSet.getArray("genre_ids"));
+        Object[] genreNames = toArray(resultSet.getArray("genre_names"));
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int i = 0; i < genreIds.length; i++) {
+            genres.add(new Genre(((Number) genreIds[i]).longValue(), (String) genreNames[i]));
+        }
+        film.setGenres(genres);
+
+        Object[] directorIds = toArray(resultSet.getArray("director_ids"));
+        Object[] directorNames = toArray(resultSet.getArray("director_names"));
+        List<Director> directors = new ArrayList<>(directorIds.length);
+        for (int i = 0; i < directorIds.length; i++) {
+            directors.add(new Director(((Number) directorIds[i]).longValue(), (String) directorNames[i]));
+        }
+        film.setDirectors(directors);
+
+        film.setLikes(null);
         return film;
     }
-}
\ No newline at end of file
+
+    public static Set<Long> toLongSet(Array array) throws SQLException {
+        Set<Long> result = new LinkedHashSet<>();
+        for (Object value : toArray(array)) {
+            result.add(((Number) value).longValue());
+        }
+        return result;
+    }
+
+    private static Object[] toArray(Array array) throws SQLException {
+        return array != null ? (Object[]) array.getArray() : new Object[0];
+    }
+}
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import jakarta.validation.constraints.*;
@@ -30,7 +32,10 @@ public class Film {
     private Mpa mpa;
     @JsonDeserialize(as = LinkedHashSet.class)
     private Set<Genre> genres = new LinkedHashSet<>();
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<Long> likes = new LinkedHashSet<>();
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int likesCount;
     private List<Director> directors;
 
 }
\ No newline at end of file
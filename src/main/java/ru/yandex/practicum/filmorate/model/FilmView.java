@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Представление фильмов в списках: FULL - с id всех лайкнувших пользователей,
+ * SUMMARY - только со счётчиком likesCount, без загрузки лайков.
+ */
+public enum FilmView {
+    FULL, SUMMARY;
+
+    public static FilmView from(String value) {
+        for (FilmView view : values()) {
+            if (view.name().equalsIgnoreCase(value)) {
+                return view;
+            }
+        }
+        throw new ValidationException("Неизвестное представление фильмов: " + value);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Итог массового добавления в друзья: сколько связей добавлено и сколько пропущено как уже существующие.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendshipBatchResult {
+
+    private int added;
+
+    private int skipped;
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Связь для массового добавления в друзья: пользователь userId добавляет в друзья friendId.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendshipEdge {
+
+    private Long userId;
+
+    private Long friendId;
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Кратчайшая цепочка друзей: id пользователей от первого до последнего и число рёбер между ними.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendshipPath {
+
+    private List<Long> userIds;
+
+    private int length;
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Способ подбора рекомендаций: ITEMS - по сходству фильмов (item-item),
+ * USERS - по лайкам ближайших по вкусу пользователей, ALS - по обученной модели матричной факторизации,
+ * FRIENDS - по лайкам друзей и друзей друзей.
+ */
+public enum RecommendationMode {
+    ITEMS, USERS, ALS, FRIENDS;
+
+    public static RecommendationMode from(String value) {
+        for (RecommendationMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new ValidationException("Неизвестный способ подбора рекомендаций: " + value);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Вариант автодополнения поискового запроса: название фильма или имя режиссёра.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suggestion {
+
+    private Type type;
+
+    private Long id;
+
+    private String text;
+
+    private int likesCount;
+
+    public enum Type { FILM, DIRECTOR }
+}
@@ -10,6 +10,7 @@ import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -20,7 +21,7 @@ public class FeedService {
     private final UserStorage userStorage;
 
     public List<Event> getUserFeed(Long userId) {
-        if (userStorage.getById(userId).isEmpty()) {
+        if (!userStorage.exists(userId)) {
             throw new NotFoundException("Пользователь с ID " + userId + " не найден");
         }
         log.info("Запрос ленты событий для пользователя с ID: {}", userId);
@@ -29,8 +30,27 @@ public class FeedService {
         return events;
     }
 
+    public Consumer<Consumer<List<Event>>> exportUserFeed(Long userId) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
+        }
+        log.info("Потоковая выгрузка ленты событий пользователя с ID: {}", userId);
+        return consumer -> feedStorage.streamUserFeed(userId, consumer);
+    }
+
+    /**
+     * Записывает события одной пачкой. Пользователи событий должны быть уже проверены вызывающим кодом.
+     */
+    public void addEvents(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        feedStorage.addEvents(events);
+        log.info("Добавлено {} событий в ленты пользователей", events.size());
+    }
+
     public void addEvent(Event event) {
-        if (userStorage.getById(event.getUserId()).isEmpty()) {
+        if (!userStorage.exists(event.getUserId())) {
             throw new NotFoundException("Пользователь с ID " + event.getUserId() + " не найден");
         }
 
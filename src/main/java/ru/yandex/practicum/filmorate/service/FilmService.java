@@ -9,15 +9,19 @@ import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmView;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +35,7 @@ public class FilmService {
     private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
     private final DirectorStorage directorStorage;
     private final FeedService feedService;
+    private final LikeIngestionService likeIngestionService;
 
     @Autowired
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
@@ -39,7 +44,8 @@ public class FilmService {
                        MpaStorage mpaStorage,
                        GenreStorage genreStorage,
                        DirectorStorage directorStorage,
-                       FeedService feedService) {
+                       FeedService feedService,
+                       LikeIngestionService likeIngestionService) {
         this.filmStorage = filmStorage;
         this.likeStorage = likeStorage;
         this.userService = userService;
@@ -47,17 +53,42 @@ public class FilmService {
         this.genreStorage = genreStorage;
         this.directorStorage = directorStorage;
         this.feedService = feedService;
+        this.likeIngestionService = likeIngestionService;
     }
 
     public List<Film> getAllFilms() {
         return filmStorage.getAll();
     }
 
+    public void exportFilms(Consumer<List<Film>> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        return filmStorage.getPage(afterId, limit);
+    }
+
+    public List<Film> applyView(List<Film> films, String view) {
+        if (FilmView.from(view) == FilmView.FULL) {
+            filmStorage.loadLikes(films);
+        }
+        return films;
+    }
+
     public Film getFilmById(Long id) {
         return filmStorage.getById(id)
                 .orElseThrow(() -> new NotFoundException("Фильм с ID " + id + " не найден"));
     }
 
+    /**
+     * Проверяет существование фильма по индексу, не загружая его из базы.
+     */
+    public void checkFilmExists(Long id) {
+        if (!filmStorage.exists(id)) {
+            throw new NotFoundException("Фильм с ID " + id + " не найден");
+        }
+    }
+
     public Film createFilm(Film film) {
         validateFilm(film);
         validateMpa(film);
@@ -67,7 +98,7 @@ public class FilmService {
     }
 
     public Film updateFilm(Film film) {
-        getFilmById(film.getId());
+        checkFilmExists(film.getId());
         validateFilm(film);
         validateMpa(film);
         validateGenres(film);
@@ -85,8 +116,12 @@ public class FilmService {
     }
 
     public void addLike(Long filmId, Long userId) {
-        getFilmById(filmId);
-        userService.getUserById(userId);
+        checkFilmExists(filmId);
+        userService.checkUserExists(userId);
+        if (likeIngestionService.isEnabled()) {
+            likeIngestionService.submit(filmId, userId, true);
+            return;
+        }
         likeStorage.addLike(filmId, userId);
 
         feedService.addEvent(new Event(
@@ -100,8 +135,12 @@ public class FilmService {
     }
 
     public void removeLike(Long filmId, Long userId) {
-        getFilmById(filmId);
-        userService.getUserById(userId);
+        checkFilmExists(filmId);
+        userService.checkUserExists(userId);
+        if (likeIngestionService.isEnabled()) {
+            likeIngestionService.submit(filmId, userId, false);
+            return;
+        }
         likeStorage.removeLike(filmId, userId);
 
         feedService.addEvent(new Event(
@@ -115,13 +154,7 @@ public class FilmService {
     }
 
     public List<Film> getPopularFilms(int count) {
-        return filmStorage.getAll().stream()
-                .sorted((f1, f2) -> Integer.compare(
-                        f2.getLikes().size(),
-                        f1.getLikes().size()
-                ))
-                .limit(count)
-                .collect(Collectors.toList());
+        return filmStorage.getPopularFilms(count);
     }
 
     public List<Film> getPopularFilmsByGenreAndYear(int count, Long genreId, Integer year) {
@@ -144,8 +177,8 @@ public class FilmService {
     }
 
     public List<Film> getCommonLikedFilms(Long userId, Long friendId) {
-        userService.getUserById(userId);
-        userService.getUserById(friendId);
+        userService.checkUserExists(userId);
+        userService.checkUserExists(friendId);
 
         Set<Long> commonFilmIds = likeStorage.getCommonLikedFilms(userId, friendId);
 
@@ -156,16 +189,29 @@ public class FilmService {
 
         log.info("Найдено {} общих фильмов", commonFilmIds.size());
 
-        return commonFilmIds.stream()
-                .map(this::getFilmById)
+        return filmStorage.getByIds(new ArrayList<>(commonFilmIds)).stream()
                 .sorted((f1, f2) -> Integer.compare(
-                        f2.getLikes().size(),
-                        f1.getLikes().size()
+                        f2.getLikesCount(),
+                        f1.getLikesCount()
                 ))
                 .collect(Collectors.toList());
     }
 
-    public List<Film> searchFilms(String query, String by) {
+    public List<Suggestion> suggest(String prefix, Integer limit) {
+        int size = limit != null ? limit : FilmSuggestIndex.TOP_N;
+        if (size <= 0 || size > FilmSuggestIndex.TOP_N) {
+            throw new ValidationException("Количество подсказок должно быть от 1 до " + FilmSuggestIndex.TOP_N);
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return filmStorage.suggest(prefix, size);
+    }
+
+    public List<Film> searchFilms(String query, String by, int offset, int limit) {
+        if (offset < 0) {
+            throw new ValidationException("Смещение не может быть отрицательным");
+        }
         if (query == null || query.trim().isEmpty()) {
             log.info("Пустой поисковый запрос - возвращаем пустой результат");
             return List.of();
@@ -194,12 +240,7 @@ public class FilmService {
         log.info("Поиск фильмов по запросу: '{}', title: {}, director: {}",
                 query, searchByTitle, searchByDirector);
 
-        List<Film> searchResults = filmStorage.searchFilms(query, searchByTitle, searchByDirector);
-
-        searchResults.sort((f1, f2) -> Integer.compare(
-                f2.getLikes().size(),
-                f1.getLikes().size()
-        ));
+        List<Film> searchResults = filmStorage.searchFilms(query, searchByTitle, searchByDirector, offset, limit);
 
         log.info("Найдено {} фильмов по запросу '{}'", searchResults.size(), query);
 
@@ -240,27 +281,14 @@ public class FilmService {
         log.info("Проверяем существование режиссера с ID: {}", directorId);
         directorStorage.findDirectorById(directorId);
 
-        log.info("Получаем все фильмы и фильтруем по режиссеру с ID: {}", directorId);
-        List<Film> allFilms = filmStorage.getAll();
-        List<Film> directorFilms = allFilms.stream()
-                .filter(film -> film.getDirectors().stream()
-                        .anyMatch(director -> director.getId().equals(directorId)))
-                .collect(Collectors.toList());
-
-        log.info("Найдено {} фильмов режиссера. Сортируем по параметру: {}", directorFilms.size(), sortBy);
-        if ("year".equals(sortBy)) {
-            directorFilms.sort(Comparator.comparing(Film::getReleaseDate));
-        } else if ("likes".equals(sortBy)) {
-            directorFilms.sort((f1, f2) -> Integer.compare(
-                    f2.getLikes().size(),
-                    f1.getLikes().size()
-            ));
-        }
+        log.info("Получаем фильмы режиссера с ID: {}, сортировка: {}", directorId, sortBy);
+        List<Film> directorFilms = filmStorage.getFilmsByDirector(directorId, sortBy);
+        log.info("Найдено {} фильмов режиссера", directorFilms.size());
         return directorFilms;
     }
 
     public void deleteFilmById(Long id) {
-        getFilmById(id);
+        checkFilmExists(id);
 
         filmStorage.deleteFilmById(id);
 
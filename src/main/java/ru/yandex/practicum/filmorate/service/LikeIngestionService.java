@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeCommand;
+import ru.yandex.practicum.filmorate.storage.like.LikeJournal;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Приём лайков с групповой записью (filmorate.likes.ingestion=queued).
+ * Проверенная команда записывается в {@link LikeJournal} и ставится в ограниченную очередь,
+ * после чего клиент получает ответ. Отдельный поток забирает из очереди до batch-size команд
+ * и записывает лайки и события ленты многострочными запросами в одной транзакции; события пишутся только
+ * для команд, изменивших состояние лайка. Лайк становится виден в выдаче после записи пачки,
+ * обычно через миллисекунды после ответа. Журнал открывается и воспроизводится только в этом режиме,
+ * при запуске контекста: слушатели изменений к этому моменту зарегистрированы и индексы получают
+ * воспроизведённые лайки, а веб-сервер запускается позже и ещё не принимает новые команды.
+ * Без filmorate.likes.journal-file режим не запускается: ответ клиенту означал бы только запись в память.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LikeIngestionService implements SmartLifecycle {
+    private final LikeStorage likeStorage;
+    private final FeedStorage feedStorage;
+    private final LikeJournal journal;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${filmorate.likes.ingestion:direct}")
+    private String mode;
+
+    @Value("${filmorate.likes.queue-capacity:10000}")
+    private int capacity;
+
+    @Value("${filmorate.likes.batch-size:500}")
+    private int batchSize;
+
+    @Value("${filmorate.likes.enqueue-timeout-ms:5000}")
+    private long enqueueTimeoutMs;
+
+    private BlockingQueue<LikeCommand> queue;
+    // Места в очереди резервируются до записи в журнал, чтобы принятая команда всегда помещалась в очередь
+    private Semaphore permits;
+    // Запись в журнал и постановка в очередь идут под одной блокировкой, чтобы порядок в очереди совпадал
+    // с порядком в файле и применённые пачки отмечались в журнале его началом
+    private final Object enqueueLock = new Object();
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        permits = new Semaphore(capacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (!isEnabled()) {
+            return;
+        }
+        if (!journal.hasFile()) {
+            throw new IllegalStateException("Для filmorate.likes.ingestion=queued нужен filmorate.likes.journal-file: " +
+                    "без журнала принятые лайки теряются при остановке");
+        }
+
+        // Команды, принятые до остановки, но не записанные в базу
+        journal.open();
+        long replayed = journal.replay(batchSize, this::apply);
+        if (replayed > 0) {
+            log.info("Из журнала применено {} команд лайков", replayed);
+        }
+
+        running = true;
+        writer = new Thread(this::drain, "like-ingestion-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Раньше веб-сервера: при остановке он первым перестаёт принимать запросы, затем очередь дописывается
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    public boolean isEnabled() {
+        return "queued".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Принимает команду и возвращается после её записи в журнал. Если очередь заполнена дольше
+     * enqueue-timeout-ms, команда отклоняется с {@link ServiceUnavailableException}.
+     */
+    public void submit(Long filmId, Long userId, boolean added) {
+        try {
+            if (!permits.tryAcquire(enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ServiceUnavailableException("Очередь лайков переполнена, повторите запрос позже");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Постановка лайка в очередь прервана", e);
+        }
+        LikeCommand command = new LikeCommand(filmId, userId, added, System.currentTimeMillis());
+        long record;
+        synchronized (enqueueLock) {
+            try {
+                record = journal.write(command);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            queue.add(command);
+        }
+        journal.awaitSynced(record);
+    }
+
+    private void drain() {
+        List<LikeCommand> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                LikeCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                apply(batch);
+                permits.release(batch.size());
+                journal.markApplied(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<LikeCommand> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+        } catch (RuntimeException e) {
+            // Одна неприменимая команда (например, фильм удалён после приёма) не должна терять всю пачку
+            log.warn("Пачка из {} лайков не записана: {}. Команды применяются по одной", batch.size(), e.getMessage());
+            for (LikeCommand command : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(List.of(command)));
+                } catch (RuntimeException commandError) {
+                    log.error("Команда лайка {} отброшена: {}", command, commandError.getMessage());
+                }
+            }
+        }
+    }
+
+    private void write(List<LikeCommand> batch) {
+        List<LikeCommand> changed = likeStorage.applyLikes(batch);
+        if (changed.isEmpty()) {
+            return;
+        }
+        feedStorage.addEvents(changed.stream()
+                .map(command -> new Event(null, command.userId(), command.filmId(), Event.EventType.LIKE,
+                        command.added() ? Event.Operation.ADD : Event.Operation.REMOVE, command.timestamp()))
+                .collect(Collectors.toList()));
+    }
+}
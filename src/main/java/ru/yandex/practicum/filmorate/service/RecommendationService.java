@@ -5,6 +5,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmView;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.recommendation.RecommendationDbStorage;
 
@@ -25,10 +27,10 @@ public class RecommendationService {
         this.filmStorage = filmStorage;
     }
 
-    public List<Film> getRecommendation(Long userId) {
-        log.info("Получение рекомендаций для пользователя с id={}", userId);
+    public List<Film> getRecommendation(Long userId, RecommendationMode mode, FilmView view) {
+        log.info("Получение рекомендаций для пользователя с id={}, способ {}", userId, mode);
 
-        List<Long> filmIds = Optional.ofNullable(recommendationStorage.getRecommendation(userId))
+        List<Long> filmIds = Optional.ofNullable(recommendationStorage.getRecommendation(userId, mode))
                 .orElse(Collections.emptyList());
 
         if (filmIds.isEmpty()) {
@@ -37,6 +39,9 @@ public class RecommendationService {
         }
 
         List<Film> recommendedFilms = filmStorage.getByIds(filmIds);
+        if (view == FilmView.FULL) {
+            filmStorage.loadLikes(recommendedFilms);
+        }
 
         log.info("Пользователю {} рекомендовано {} фильмов", userId, recommendedFilms.size());
         return recommendedFilms;
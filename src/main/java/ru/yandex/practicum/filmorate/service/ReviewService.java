@@ -136,12 +136,12 @@ public class ReviewService {
     }
 
     private void validateUser(Long userId) {
-        userService.getUserById(userId);
+        userService.checkUserExists(userId);
     }
 
     private void validateFilm(Long filmId) {
         try {
-            filmService.getFilmById(filmId);
+            filmService.checkFilmExists(filmId);
         } catch (NotFoundException e) {
             throw new NotFoundException("Film not found");
         }
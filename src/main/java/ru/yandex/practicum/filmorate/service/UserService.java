@@ -3,20 +3,30 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.FriendshipBatchResult;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.friendship.FriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class UserService {
+    private static final int MAX_FRIEND_SUGGESTIONS = 100;
+    private static final int MAX_FRIENDSHIP_BATCH = 10_000;
+    private static final int FRIENDSHIP_BATCH_ATTEMPTS = 3;
+
     private final UserStorage userStorage;
     private final FriendshipStorage friendshipStorage;
     private final FeedService feedService;
@@ -36,6 +46,19 @@ public class UserService {
         return users;
     }
 
+    public void exportUsers(Consumer<List<User>> consumer) {
+        userStorage.streamAll(users -> {
+            loadFriendsForUsers(users);
+            consumer.accept(users);
+        });
+    }
+
+    public List<User> getUsersPage(Long afterId, int limit) {
+        List<User> users = userStorage.getPage(afterId, limit);
+        loadFriendsForUsers(users);
+        return users;
+    }
+
     public User getUserById(Long id) {
         User user = userStorage.getById(id)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + id + " не найден"));
@@ -43,18 +66,27 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Проверяет существование пользователя по индексу, не загружая его из базы.
+     */
+    public void checkUserExists(Long id) {
+        if (!userStorage.exists(id)) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден");
+        }
+    }
+
     public User createUser(User user) {
         return userStorage.create(user);
     }
 
     public User updateUser(User user) {
-        getUserById(user.getId());
+        checkUserExists(user.getId());
         return userStorage.update(user);
     }
 
     public void addFriend(Long userId, Long friendId) {
-        getUserById(userId);
-        getUserById(friendId);
+        checkUserExists(userId);
+        checkUserExists(friendId);
         validateAddFriend(userId, friendId);
         log.info("Пользователь {} добавляет в друзья пользователя {}", userId, friendId);
         friendshipStorage.addFriend(userId, friendId);
@@ -70,9 +102,68 @@ public class UserService {
 
     }
 
+    /**
+     * Массовое добавление в друзья в одной транзакции: все id проверяются одним запросом,
+     * связи и события ленты вставляются пачками. Уже существующие и повторяющиеся связи пропускаются,
+     * события пишутся только для действительно вставленных связей,
+     * связь с самим собой или неизвестный пользователь отклоняют всю пачку.
+     */
+    @Transactional
+    public FriendshipBatchResult addFriends(List<FriendshipEdge> edges) {
+        if (edges == null || edges.isEmpty()) {
+            return new FriendshipBatchResult(0, 0);
+        }
+        if (edges.size() > MAX_FRIENDSHIP_BATCH) {
+            throw new ValidationException("За один запрос можно добавить не более " + MAX_FRIENDSHIP_BATCH + " связей");
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        for (FriendshipEdge edge : edges) {
+            if (edge == null || edge.getUserId() == null || edge.getFriendId() == null) {
+                throw new ValidationException("Связь должна содержать userId и friendId");
+            }
+            if (edge.getUserId().equals(edge.getFriendId())) {
+                throw new ValidationException("Нельзя добавить самого себя в друзья: " + edge.getUserId());
+            }
+            userIds.add(edge.getUserId());
+            userIds.add(edge.getFriendId());
+        }
+        Set<Long> existing = userStorage.getExistingIds(userIds);
+        if (existing.size() < userIds.size()) {
+            userIds.removeAll(existing);
+            throw new NotFoundException("Пользователи с ID " + userIds + " не найдены");
+        }
+
+        List<FriendshipEdge> unique = new ArrayList<>(new LinkedHashSet<>(edges));
+        List<FriendshipEdge> added = insertFriends(unique);
+        if (!added.isEmpty()) {
+            long timestamp = System.currentTimeMillis();
+            feedService.addEvents(added.stream()
+                    .map(edge -> new Event(null, edge.getUserId(), edge.getFriendId(),
+                            Event.EventType.FRIEND, Event.Operation.ADD, timestamp))
+                    .collect(Collectors.toList()));
+        }
+        log.info("Массовое добавление в друзья: добавлено {}, пропущено {}", added.size(), edges.size() - added.size());
+        return new FriendshipBatchResult(added.size(), edges.size() - added.size());
+    }
+
+    // Связи, которые параллельный запрос добавил после проверки в базе, видны при повторе и пропускаются
+    private List<FriendshipEdge> insertFriends(List<FriendshipEdge> edges) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return friendshipStorage.addFriends(edges);
+            } catch (DuplicateKeyException e) {
+                if (attempt == FRIENDSHIP_BATCH_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Пачка связей пересеклась с параллельным добавлением, повтор {}", attempt);
+            }
+        }
+    }
+
     public void removeFriend(Long userId, Long friendId) {
-        getUserById(userId);
-        getUserById(friendId);
+        checkUserExists(userId);
+        checkUserExists(friendId);
 
         friendshipStorage.removeFriend(userId, friendId);
 
@@ -87,7 +178,7 @@ public class UserService {
     }
 
     public List<User> getFriends(Long userId) {
-        getUserById(userId);
+        checkUserExists(userId);
 
         Set<Long> friendsIds = friendshipStorage.getFriends(userId);
 
@@ -95,14 +186,42 @@ public class UserService {
     }
 
     public List<User> getCommonFriends(Long userId, Long otherId) {
-        getUserById(userId);
-        getUserById(otherId);
+        checkUserExists(userId);
+        checkUserExists(otherId);
 
         Set<Long> commonFriendIds = friendshipStorage.getCommonFriends(userId, otherId);
 
         return getUsersByIds(commonFriendIds);
     }
 
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        if (limit <= 0 || limit > MAX_FRIEND_SUGGESTIONS) {
+            throw new ValidationException("Количество рекомендаций друзей должно быть от 1 до "
+                    + MAX_FRIEND_SUGGESTIONS);
+        }
+        checkUserExists(userId);
+
+        List<Long> suggestedIds = friendshipStorage.getFriendSuggestions(userId, limit);
+
+        return getUsersByIds(new LinkedHashSet<>(suggestedIds));
+    }
+
+    public FriendshipPath getPath(Long userId, Long otherId, Integer maxDepth) {
+        if (maxDepth != null && maxDepth <= 0) {
+            throw new ValidationException("Глубина поиска должна быть положительной");
+        }
+        checkUserExists(userId);
+        checkUserExists(otherId);
+
+        List<Long> path = friendshipStorage.getPath(userId, otherId,
+                maxDepth != null ? maxDepth : Integer.MAX_VALUE);
+        if (path.isEmpty()) {
+            throw new NotFoundException("Цепочка друзей от пользователя " + userId
+                    + " до пользователя " + otherId + " не найдена");
+        }
+        return new FriendshipPath(path, path.size() - 1);
+    }
+
     private void loadFriendsForUser(User user) {
         Set<Long> friendsIds = friendshipStorage.getFriends(user.getId());
         user.setFriends(friendsIds);
@@ -136,7 +255,7 @@ public class UserService {
     }
 
     public void deleteUserById(long id) {
-        getUserById(id);
+        checkUserExists(id);
         userStorage.deleteUserById(id);
     }
 
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.change.UserChange;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Множества существующих id пользователей и фильмов в виде битовых карт Roaring.
+ * Проверки существования при записи отвечают без запроса к базе и без загрузки сущности целиком.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExistenceIndex {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RoaringBitmap users = new RoaringBitmap();
+    private final RoaringBitmap films = new RoaringBitmap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        RoaringBitmap loadedUsers = new RoaringBitmap();
+        RoaringBitmap loadedFilms = new RoaringBitmap();
+        jdbcTemplate.query("SELECT id FROM users", rs -> {
+            loadedUsers.add(toIndex(rs.getLong("id")));
+        });
+        jdbcTemplate.query("SELECT id FROM films", rs -> {
+            loadedFilms.add(toIndex(rs.getLong("id")));
+        });
+
+        lock.writeLock().lock();
+        try {
+            users.clear();
+            films.clear();
+            users.or(loadedUsers);
+            films.or(loadedFilms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс существования построен: {} пользователей, {} фильмов",
+                loadedUsers.getCardinality(), loadedFilms.getCardinality());
+    }
+
+    public boolean userExists(Long userId) {
+        return contains(users, userId);
+    }
+
+    public boolean filmExists(Long filmId) {
+        return contains(films, filmId);
+    }
+
+    @EventListener
+    public void onUserChange(UserChange change) {
+        update(users, change.userId(), change.type() == UserChange.Type.CREATED);
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        if (change.type() != FilmChange.Type.UPDATED) {
+            update(films, change.filmId(), change.type() == FilmChange.Type.CREATED);
+        }
+    }
+
+    private boolean contains(RoaringBitmap ids, Long id) {
+        if (id == null || id <= 0 || id > Integer.MAX_VALUE) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.contains(toIndex(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(RoaringBitmap ids, Long id, boolean present) {
+        lock.writeLock().lock();
+        try {
+            if (present) {
+                ids.add(toIndex(id));
+            } else {
+                ids.remove(toIndex(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Roaring хранит 32-битные значения; id в базе генерируются последовательно и в этот диапазон укладываются
+    private static int toIndex(Long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Выборка по набору id одним параметром-массивом: запрос вида {@code ... WHERE id = ANY(?)}.
+ * Текст запроса не зависит от количества id, поэтому H2 разбирает и планирует его один раз
+ * и дальше берёт из кеша запросов сессии.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdBatchLoader {
+    private final JdbcTemplate jdbcTemplate;
+
+    public <T> List<T> query(String sql, Collection<Long> ids, RowMapper<T> rowMapper) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(statement(sql, ids), rowMapper);
+    }
+
+    public void query(String sql, Collection<Long> ids, RowCallbackHandler handler) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(statement(sql, ids), handler);
+    }
+
+    public int count(String sql, Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        List<Integer> counts = jdbcTemplate.query(statement(sql, ids), (rs, rowNum) -> rs.getInt(1));
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+
+    private PreparedStatementCreator statement(String sql, Collection<Long> ids) {
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("BIGINT", ids.toArray()));
+            return ps;
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Потоковое чтение больших выборок: строки читаются курсором с ограниченным fetch size
+ * и отдаются порциями, поэтому в памяти одновременно находится не больше одной порции.
+ */
+public final class JdbcStreams {
+    public static final int CHUNK_SIZE = 500;
+
+    private JdbcStreams() {
+    }
+
+    public static <T> void forEachChunk(JdbcTemplate jdbcTemplate, String sql, RowMapper<T> rowMapper,
+                                        Consumer<List<T>> consumer, Object... args) {
+        try (Stream<T> rows = jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(CHUNK_SIZE);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, rowMapper)) {
+            List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    consumer.accept(chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.*;
+
+/**
+ * Сумматор long -> double с открытой адресацией на двух примитивных массивах.
+ * Id в базе положительные, поэтому 0 обозначает пустую ячейку. Обход идёт по ячейкам:
+ * от 0 до {@link #capacity()}, пропуская те, где {@link #keyAt(int)} равен 0.
+ */
+public final class LongDoubleMap {
+    private long[] keys;
+    private double[] values;
+    private int size;
+
+    public LongDoubleMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new double[capacity];
+    }
+
+    public void add(long key, double value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return;
+        }
+        values[slot] += value;
+    }
+
+    public void addAll(LongDoubleMap other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != 0) {
+                add(other.keys[slot], other.values[slot]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public double valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Возвращает до limit ключей с наибольшими значениями по убыванию, при равенстве - по возрастанию ключа.
+     */
+    public List<Long> top(int limit) {
+        Comparator<Integer> bySlot = Comparator.<Integer>comparingDouble(slot -> values[slot])
+                .thenComparing(slot -> -keys[slot]);
+        PriorityQueue<Integer> best = new PriorityQueue<>(bySlot);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == 0) {
+                continue;
+            }
+            best.add(slot);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Long> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(keys[best.poll()]);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new double[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Рассылает изменения данных in-memory индексам.
+ * Если запись выполняется в транзакции, изменения копятся и рассылаются после её фиксации,
+ * чтобы другие потоки не видели в индексах незафиксированных строк; при откате они отбрасываются.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangePublisher {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void publish(Object change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending().add(change);
+        } else {
+            eventPublisher.publishEvent(change);
+        }
+    }
+
+    private List<Object> pending() {
+        @SuppressWarnings("unchecked")
+        List<Object> pending = (List<Object>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Object> registered = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registered.forEach(eventPublisher::publishEvent);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangePublisher.this);
+                }
+            });
+            pending = registered;
+        }
+        return pending;
+    }
+}
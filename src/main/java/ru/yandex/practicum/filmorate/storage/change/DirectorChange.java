@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+import ru.yandex.practicum.filmorate.model.Director;
+
+public record DirectorChange(Long directorId, String name) {
+
+    public static DirectorChange saved(Director director) {
+        return new DirectorChange(director.getId(), director.getName());
+    }
+
+    public static DirectorChange deleted(Long directorId) {
+        return new DirectorChange(directorId, null);
+    }
+
+    public boolean isDeleted() {
+        return name == null;
+    }
+}
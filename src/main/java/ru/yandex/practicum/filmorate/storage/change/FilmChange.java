@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+public record FilmChange(Type type, Long filmId, Film film) {
+
+    public static FilmChange created(Film film) {
+        return new FilmChange(Type.CREATED, film.getId(), film);
+    }
+
+    public static FilmChange updated(Film film) {
+        return new FilmChange(Type.UPDATED, film.getId(), film);
+    }
+
+    public static FilmChange deleted(Long filmId) {
+        return new FilmChange(Type.DELETED, filmId, null);
+    }
+
+    public enum Type { CREATED, UPDATED, DELETED }
+}
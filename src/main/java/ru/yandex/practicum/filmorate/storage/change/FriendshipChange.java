@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+public record FriendshipChange(Long userId, Long friendId, boolean added) {
+}
@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+public record LikeChange(Long filmId, Long userId, boolean added) {
+}
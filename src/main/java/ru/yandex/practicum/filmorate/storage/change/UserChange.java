@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+public record UserChange(Type type, Long userId) {
+
+    public static UserChange created(Long userId) {
+        return new UserChange(Type.CREATED, userId);
+    }
+
+    public static UserChange deleted(Long userId) {
+        return new UserChange(Type.DELETED, userId);
+    }
+
+    public enum Type { CREATED, DELETED }
+}
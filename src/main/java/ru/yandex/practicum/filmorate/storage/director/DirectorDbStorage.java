@@ -10,16 +10,20 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.change.DirectorChange;
 
 import java.sql.PreparedStatement;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class DirectorDbStorage implements DirectorStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final IdBatchLoader idBatchLoader;
+    private final ChangePublisher changePublisher;
 
     @Override
     public List<Director> findAll() {
@@ -62,6 +66,7 @@ public class DirectorDbStorage implements DirectorStorage {
 
         Long id = Objects.requireNonNull(keyHolder.getKey()).longValue();
         Director director = findDirectorById(id);
+        changePublisher.publish(DirectorChange.saved(director));
         log.info("Добавлен режиссер {} с id = {}", director.getName(), director.getId());
         return director;
     }
@@ -84,14 +89,20 @@ public class DirectorDbStorage implements DirectorStorage {
         jdbcTemplate.update(sql, updatedDirector.getName(), updatedDirector.getId());
 
         log.info("Обновлен режиссер с id = {}", updatedDirector.getId());
-        return findDirectorById(updatedDirector.getId());
+        Director director = findDirectorById(updatedDirector.getId());
+        changePublisher.publish(DirectorChange.saved(director));
+        return director;
     }
 
     @Override
     public boolean deleteById(Long id) {
         log.info("Удаление режиссера по id - {}", id);
         String sql = "DELETE FROM directors WHERE id = ?";
-        return jdbcTemplate.update(sql, id) > 0;
+        boolean deleted = jdbcTemplate.update(sql, id) > 0;
+        if (deleted) {
+            changePublisher.publish(DirectorChange.deleted(id));
+        }
+        return deleted;
     }
 
     @Override
@@ -99,16 +110,10 @@ public class DirectorDbStorage implements DirectorStorage {
         if (directorsIds == null || directorsIds.isEmpty()) {
             throw new NotFoundException("У переданных режиссеров не указаны id");
         }
-        String sql = "SELECT COUNT(*) FROM directors WHERE id IN (:ids)";
-        String ids = directorsIds.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
-
-        Integer count = jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM directors WHERE id IN (" + ids + ")",
-                Integer.class);
+        String sql = "SELECT COUNT(*) FROM directors WHERE id = ANY(?)";
+        int count = idBatchLoader.count(sql, directorsIds);
 
-        if (Objects.nonNull(count) && count != directorsIds.size()) {
+        if (count != directorsIds.size()) {
             throw new ValidationException("Не все указанные режиссеры были найдены");
         }
     }
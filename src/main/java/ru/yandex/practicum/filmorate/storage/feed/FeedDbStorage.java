@@ -5,8 +5,11 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.mappers.EventRowMapper;
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.JdbcStreams;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -25,12 +28,28 @@ public class FeedDbStorage implements FeedStorage {
                 event.getEntityId());
     }
 
+    @Override
+    public void addEvents(List<Event> events) {
+        String sql = "INSERT INTO feed_events (timestamp, user_id, event_type, operation, entity_id) VALUES (?, ?, ?, ?, ?)";
+        List<Object[]> batchArgs = events.stream()
+                .map(event -> new Object[]{event.getTimestamp(), event.getUserId(), event.getEventType().name(),
+                        event.getOperation().name(), event.getEntityId()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+    }
+
     @Override
     public List<Event> getUserFeed(Long userId) {
         String sql = "SELECT * FROM feed_events WHERE user_id = ? ORDER BY timestamp";
         return jdbcTemplate.query(sql, new EventRowMapper(), userId);
     }
 
+    @Override
+    public void streamUserFeed(Long userId, Consumer<List<Event>> consumer) {
+        String sql = "SELECT * FROM feed_events WHERE user_id = ? ORDER BY timestamp";
+        JdbcStreams.forEachChunk(jdbcTemplate, sql, new EventRowMapper(), consumer, userId);
+    }
+
     @Override
     public boolean hasUserLikedReview(Long userId, Long reviewId) {
         String sql = "SELECT COUNT(*) FROM review_likes WHERE user_id = ? AND review_id = ? AND is_useful = true";
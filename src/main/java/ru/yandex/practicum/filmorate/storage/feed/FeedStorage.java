@@ -2,12 +2,17 @@ package ru.yandex.practicum.filmorate.storage.feed;
 
 import ru.yandex.practicum.filmorate.model.Event;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FeedStorage {
 
     void addEvent(Event event);
 
+    void addEvents(List<Event> events);
+
     List<Event> getUserFeed(Long userId);
 
+    void streamUserFeed(Long userId, Consumer<List<Event>> consumer);
+
     boolean hasUserLikedReview(Long userId, Long reviewId);
 }
@@ -6,13 +6,19 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
-import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.JdbcStreams;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -20,30 +26,58 @@ import java.util.stream.Collectors;
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
     private final FilmRowMapper filmRowMapper;
-
+    private final FilmPopularityIndex popularityIndex;
+    private final ChangePublisher changePublisher;
+    private final IdBatchLoader idBatchLoader;
+    private final ExistenceIndex existenceIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+
+    // Фильм вместе с рейтингом, жанрами и режиссёрами читается одним запросом,
+    // связи агрегируются в массивы и разбираются в FilmRowMapper
+    private static final String FILM_SELECT = "SELECT f.*, m.name AS mpa_name, " +
+            "(SELECT ARRAY_AGG(g.id ORDER BY g.id) FROM film_genres fg JOIN genres g ON fg.genre_id = g.id " +
+            "WHERE fg.film_id = f.id) AS genre_ids, " +
+            "(SELECT ARRAY_AGG(g.name ORDER BY g.id) FROM film_genres fg JOIN genres g ON fg.genre_id = g.id " +
+            "WHERE fg.film_id = f.id) AS genre_names, " +
+            "(SELECT ARRAY_AGG(d.id ORDER BY d.id) FROM directors_films df JOIN directors d ON df.director_id = d.id " +
+            "WHERE df.film_id = f.id) AS director_ids, " +
+            "(SELECT ARRAY_AGG(d.name ORDER BY d.id) FROM directors_films df JOIN directors d ON df.director_id = d.id " +
+            "WHERE df.film_id = f.id) AS director_names ";
+    private static final String LIKES_COLUMN = ", (SELECT ARRAY_AGG(fl.user_id ORDER BY fl.user_id) " +
+            "FROM film_likes fl WHERE fl.film_id = f.id) AS like_ids ";
+    private static final String FILM_FROM = "FROM films f LEFT JOIN mpa_ratings m ON f.mpa_id = m.id ";
 
     @Override
     public List<Film> getAll() {
-        String sql = "SELECT f.*, m.name as mpa_name FROM films f LEFT JOIN mpa_ratings m ON f.mpa_id = m.id";
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper);
-        loadGenresForFilms(films);
-        loadLikesForFilms(films);
-        loadDirectorsForFilms(films);
-        return films;
+        return jdbcTemplate.query(FILM_SELECT + FILM_FROM, filmRowMapper);
+    }
+
+    @Override
+    public List<Film> getPage(Long afterId, int limit) {
+        String sql = FILM_SELECT + FILM_FROM + "WHERE f.id > ? ORDER BY f.id LIMIT ?";
+        return jdbcTemplate.query(sql, filmRowMapper, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<List<Film>> consumer) {
+        JdbcStreams.forEachChunk(jdbcTemplate, FILM_SELECT + FILM_FROM + "ORDER BY f.id", filmRowMapper, consumer);
     }
 
     @Override
     public Optional<Film> getById(Long id) {
-        String sql = "SELECT f.*, m.name as mpa_name FROM films f LEFT JOIN mpa_ratings m ON f.mpa_id = m.id WHERE f.id = ?";
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, id);
-        if (films.isEmpty()) {
-            return Optional.empty();
-        }
-        Film film = films.get(0);
-        loadGenresForFilm(film);
-        loadLikesForFilm(film);
-        loadDirectorsForFilm(film);
-        return Optional.of(film);
+        String sql = FILM_SELECT + LIKES_COLUMN + FILM_FROM + "WHERE f.id = ?";
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Film film = filmRowMapper.mapRow(rs, rowNum);
+            film.setLikes(FilmRowMapper.toLongSet(rs.getArray("like_ids")));
+            return film;
+        }, id);
+        return films.isEmpty() ? Optional.empty() : Optional.of(films.get(0));
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        return existenceIndex.filmExists(id);
     }
 
     @Override
@@ -69,6 +103,7 @@ public class FilmDbStorage implements FilmStorage {
         film.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
         updateFilmGenres(film);
         updateFilmDirectors(film);
+        changePublisher.publish(FilmChange.created(film));
         return film;
     }
 
@@ -85,73 +120,49 @@ public class FilmDbStorage implements FilmStorage {
 
         updateFilmGenres(film);
         updateFilmDirectors(film);
-        return getById(film.getId()).orElseThrow();
+        Film updated = getById(film.getId()).orElseThrow();
+        changePublisher.publish(FilmChange.updated(updated));
+        return updated;
     }
 
     @Override
     public void delete(Long id) {
         String sql = "DELETE FROM films WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        changePublisher.publish(FilmChange.deleted(id));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getByIds(popularityIndex.getTopFilmIds(count));
     }
 
     @Override
     public List<Film> getPopularFilmsByGenreAndYear(int count, Long genreId, Integer year) {
-        String sql = "SELECT f.*, m.name as mpa_name, " +
-                "COUNT(fl.user_id) as likes_count " +
-                "FROM films f " +
-                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
-                "LEFT JOIN film_likes fl ON f.id = fl.film_id " +
-                "LEFT JOIN film_genres fg ON f.id = fg.film_id " +
-                "WHERE fg.genre_id = ? " +
-                "AND EXTRACT(YEAR FROM f.release_date) = ? " +
-                "GROUP BY f.id, m.name " +
-                "ORDER BY likes_count DESC " +
-                "LIMIT ?";
-
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, genreId, year, count);
-        loadGenresForFilms(films);
-        loadLikesForFilms(films);
-        loadDirectorsForFilms(films);
-        return films;
+        return getByIds(popularityIndex.getTopFilmIdsByGenreAndYear(count, genreId, year));
     }
 
     @Override
     public List<Film> getPopularFilmsByGenre(int count, Long genreId) {
-        String sql = "SELECT f.*, m.name as mpa_name, " +
-                "COUNT(fl.user_id) as likes_count " +
-                "FROM films f " +
-                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
-                "LEFT JOIN film_likes fl ON f.id = fl.film_id " +
-                "LEFT JOIN film_genres fg ON f.id = fg.film_id " +
-                "WHERE fg.genre_id = ? " +
-                "GROUP BY f.id, m.name " +
-                "ORDER BY likes_count DESC " +
-                "LIMIT ?";
-
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, genreId, count);
-        loadGenresForFilms(films);
-        loadLikesForFilms(films);
-        loadDirectorsForFilms(films);
-        return films;
+        return getByIds(popularityIndex.getTopFilmIdsByGenre(count, genreId));
     }
 
     @Override
     public List<Film> getPopularFilmsByYear(int count, Integer year) {
-        String sql = "SELECT f.*, m.name as mpa_name, " +
-                "COUNT(fl.user_id) as likes_count " +
-                "FROM films f " +
-                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
-                "LEFT JOIN film_likes fl ON f.id = fl.film_id " +
-                "WHERE EXTRACT(YEAR FROM f.release_date) = ? " +
-                "GROUP BY f.id, m.name " +
-                "ORDER BY likes_count DESC " +
-                "LIMIT ?";
-
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, year, count);
-        loadGenresForFilms(films);
-        loadLikesForFilms(films);
-        loadDirectorsForFilms(films);
-        return films;
+        return getByIds(popularityIndex.getTopFilmIdsByYear(count, year));
+    }
+
+    @Override
+    public List<Film> getFilmsByDirector(Long directorId, String sortBy) {
+        // Фильмы режиссёра выбираются по индексу idx_directors_films_director, сортировка выполняется в базе
+        String orderBy = switch (sortBy) {
+            case "year" -> "ORDER BY f.release_date, f.id";
+            case "likes" -> "ORDER BY f.likes_count DESC, f.id";
+            default -> "ORDER BY f.id";
+        };
+        String sql = FILM_SELECT + FILM_FROM +
+                "JOIN directors_films df ON df.film_id = f.id WHERE df.director_id = ? " + orderBy;
+        return jdbcTemplate.query(sql, filmRowMapper, directorId);
     }
 
     @Override
@@ -170,40 +181,7 @@ public class FilmDbStorage implements FilmStorage {
 
         String deleteFilmSql = "DELETE FROM films WHERE id = ?";
         jdbcTemplate.update(deleteFilmSql, filmId);
-    }
-
-
-    private void loadDirectorsForFilms(List<Film> films) {
-        if (films.isEmpty()) return;
-
-        String filmIds = films.stream()
-                .map(Film::getId)
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
-
-        String sql = String.format(
-                "SELECT df.film_id, d.id, d.name FROM directors_films df JOIN directors d ON df.director_id = d.id WHERE df.film_id IN (%s)",
-                filmIds
-        );
-
-        Map<Long, List<Director>> filmDirectorsMap = new HashMap<>();
-        jdbcTemplate.query(sql, rs -> {
-            Long filmId = rs.getLong("film_id");
-            Director director = new Director(rs.getLong("id"), rs.getString("name"));
-            filmDirectorsMap.computeIfAbsent(filmId, k -> new ArrayList<>()).add(director);
-        });
-
-        for (Film film : films) {
-            film.setDirectors(filmDirectorsMap.getOrDefault(film.getId(), new ArrayList<>()));
-        }
-    }
-
-    private void loadDirectorsForFilm(Film film) {
-        String sql = "SELECT d.id, d.name FROM directors_films df JOIN directors d ON df.director_id = d.id WHERE df.film_id = ?";
-        List<Director> directors = jdbcTemplate.query(sql,
-                new Object[]{film.getId()},
-                (rs, rowNum) -> new Director(rs.getLong("id"), rs.getString("name")));
-        film.setDirectors(directors != null ? directors : new ArrayList<>());
+        changePublisher.publish(FilmChange.deleted(filmId));
     }
 
     private void updateFilmDirectors(Film film) {
@@ -218,54 +196,18 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
-    private void loadGenresForFilms(List<Film> films) {
-        if (films.isEmpty()) return;
-
-        String filmIds = films.stream()
-                .map(Film::getId)
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
-
-        String sql = String.format(
-                "SELECT fg.film_id, g.id, g.name FROM film_genres fg JOIN genres g ON fg.genre_id = g.id WHERE fg.film_id IN (%s)",
-                filmIds
-        );
-
-        Map<Long, Set<Genre>> filmGenresMap = new HashMap<>();
-        jdbcTemplate.query(sql, rs -> {
-            Long filmId = rs.getLong("film_id");
-            Genre genre = new Genre(rs.getLong("id"), rs.getString("name"));
-            filmGenresMap.computeIfAbsent(filmId, k -> new HashSet<>()).add(genre);
-        });
-
-        for (Film film : films) {
-            film.setGenres(filmGenresMap.getOrDefault(film.getId(), new HashSet<>()));
-        }
-    }
-
-    private void loadGenresForFilm(Film film) {
-        String sql = "SELECT g.id, g.name FROM film_genres fg JOIN genres g ON fg.genre_id = g.id WHERE fg.film_id = ?";
-        Set<Genre> genres = new HashSet<>(jdbcTemplate.query(sql,
-                new Object[]{film.getId()},
-                (rs, rowNum) -> new Genre(rs.getLong("id"), rs.getString("name"))));
-        film.setGenres(genres);
-    }
-
-    private void loadLikesForFilms(List<Film> films) {
+    @Override
+    public void loadLikes(List<Film> films) {
         if (films.isEmpty()) return;
 
-        String filmIds = films.stream()
+        List<Long> filmIds = films.stream()
                 .map(Film::getId)
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
+                .collect(Collectors.toList());
 
-        String sql = String.format(
-                "SELECT film_id, user_id FROM film_likes WHERE film_id IN (%s)",
-                filmIds
-        );
+        String sql = "SELECT film_id, user_id FROM film_likes WHERE film_id = ANY(?)";
 
         Map<Long, Set<Long>> filmLikesMap = new HashMap<>();
-        jdbcTemplate.query(sql, rs -> {
+        idBatchLoader.query(sql, filmIds, rs -> {
             Long filmId = rs.getLong("film_id");
             Long userId = rs.getLong("user_id");
             filmLikesMap.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
@@ -276,14 +218,6 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
-    private void loadLikesForFilm(Film film) {
-        String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
-        Set<Long> likes = new HashSet<>(jdbcTemplate.query(sql,
-                new Object[]{film.getId()},
-                (rs, rowNum) -> rs.getLong("user_id")));
-        film.setLikes(likes);
-    }
-
     private void updateFilmGenres(Film film) {
         jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", film.getId());
 
@@ -302,24 +236,11 @@ public class FilmDbStorage implements FilmStorage {
             return Collections.emptyList();
         }
 
-        String filmIds = ids.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
-
-        String sql = String.format(
-                "SELECT f.*, m.name as mpa_name " +
-                        "FROM films f " +
-                        "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
-                        "WHERE f.id IN (%s)", filmIds
-        );
-
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper);
+        String sql = FILM_SELECT + FILM_FROM + "WHERE f.id = ANY(?)";
 
-        loadGenresForFilms(films);
-        loadLikesForFilms(films);
-        loadDirectorsForFilms(films);
+        List<Film> films = idBatchLoader.query(sql, ids, filmRowMapper);
 
-       Map<Long, Film> filmMap = films.stream()
+        Map<Long, Film> filmMap = films.stream()
                 .collect(Collectors.toMap(Film::getId, f -> f));
 
         return ids.stream()
@@ -329,42 +250,17 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public List<Film> searchFilms(String query, boolean searchByTitle, boolean searchByDirector) {
-        String searchQuery = "%" + query.toLowerCase() + "%";
-
-        String sql = "SELECT DISTINCT f.*, m.name as mpa_name " +
-                "FROM films f " +
-                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
-                "LEFT JOIN directors_films df ON f.id = df.film_id " +
-                "LEFT JOIN directors d ON df.director_id = d.id " +
-                "WHERE 1=1 ";
-
-        List<Object> params = new ArrayList<>();
-
-        if (searchByTitle && searchByDirector) {
-            sql += "AND (LOWER(f.name) LIKE ? OR LOWER(d.name) LIKE ?) ";
-            params.add(searchQuery);
-            params.add(searchQuery);
-
-        } else if (searchByTitle) {
-            sql += "AND LOWER(f.name) LIKE ? ";
-            params.add(searchQuery);
-
-        } else if (searchByDirector) {
-            sql += "AND LOWER(d.name) LIKE ? ";
-            params.add(searchQuery);
-
-        } else {
-
+    public List<Film> searchFilms(String query, boolean searchByTitle, boolean searchByDirector,
+                                  int offset, int limit) {
+        if (!searchByTitle && !searchByDirector) {
             return Collections.emptyList();
         }
+        List<Long> candidates = searchIndex.search(query, searchByTitle, searchByDirector);
+        return getByIds(popularityIndex.rank(candidates, offset, limit));
+    }
 
-        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, params.toArray());
-
-        loadGenresForFilms(films);
-        loadLikesForFilms(films);
-        loadDirectorsForFilms(films);
-
-        return films;
+    @Override
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggestIndex.suggest(prefix, limit);
     }
 }
\ No newline at end of file
@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.change.DirectorChange;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Триграммный инвертированный индекс по названиям фильмов и именам режиссёров.
+ * Поиск подстроки пересекает списки вхождений триграмм запроса и проверяет найденных кандидатов,
+ * так что поиск не сканирует таблицы films, directors_films и directors.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TextIndex titles = new TextIndex();
+    private final TextIndex directorNames = new TextIndex();
+    private final Map<Long, Set<Long>> filmsByDirector = new HashMap<>();
+    private final Map<Long, Set<Long>> directorsByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, String> films = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM films", rs -> {
+            films.put(rs.getLong("id"), rs.getString("name"));
+        });
+        Map<Long, String> directors = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM directors", rs -> {
+            directors.put(rs.getLong("id"), rs.getString("name"));
+        });
+        Map<Long, Set<Long>> filmDirectors = new HashMap<>();
+        jdbcTemplate.query("SELECT director_id, film_id FROM directors_films", rs -> {
+            filmDirectors.computeIfAbsent(rs.getLong("film_id"), k -> new HashSet<>()).add(rs.getLong("director_id"));
+        });
+
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            directorNames.clear();
+            filmsByDirector.clear();
+            directorsByFilm.clear();
+            films.forEach(titles::put);
+            directors.forEach(directorNames::put);
+            filmDirectors.forEach(this::linkDirectors);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен для {} фильмов и {} режиссеров", films.size(), directors.size());
+    }
+
+    /**
+     * Возвращает id фильмов, у которых название или имя режиссёра содержит запрос, по возрастанию id.
+     */
+    public List<Long> search(String query, boolean searchByTitle, boolean searchByDirector) {
+        String text = query.toLowerCase(Locale.ROOT);
+        Set<Long> result = new TreeSet<>();
+        lock.readLock().lock();
+        try {
+            if (searchByTitle) {
+                result.addAll(titles.find(text));
+            }
+            if (searchByDirector) {
+                for (Long directorId : directorNames.find(text)) {
+                    result.addAll(filmsByDirector.getOrDefault(directorId, Collections.emptySet()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(result);
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        lock.writeLock().lock();
+        try {
+            titles.remove(change.filmId());
+            unlinkDirectors(change.filmId());
+            if (change.type() != FilmChange.Type.DELETED) {
+                titles.put(change.filmId(), change.film().getName());
+                linkDirectors(change.filmId(), directorIdsOf(change.film()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onDirectorChange(DirectorChange change) {
+        lock.writeLock().lock();
+        try {
+            directorNames.remove(change.directorId());
+            if (!change.isDeleted()) {
+                directorNames.put(change.directorId(), change.name());
+                return;
+            }
+            // Связи с фильмами удаляются каскадно вместе с режиссёром
+            Set<Long> films = filmsByDirector.remove(change.directorId());
+            if (films != null) {
+                for (Long filmId : films) {
+                    Set<Long> directors = directorsByFilm.get(filmId);
+                    directors.remove(change.directorId());
+                    if (directors.isEmpty()) {
+                        directorsByFilm.remove(filmId);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void linkDirectors(Long filmId, Set<Long> directorIds) {
+        if (directorIds.isEmpty()) {
+            return;
+        }
+        directorsByFilm.put(filmId, new HashSet<>(directorIds));
+        for (Long directorId : directorIds) {
+            filmsByDirector.computeIfAbsent(directorId, k -> new HashSet<>()).add(filmId);
+        }
+    }
+
+    private void unlinkDirectors(Long filmId) {
+        Set<Long> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds == null) {
+            return;
+        }
+        for (Long directorId : directorIds) {
+            Set<Long> films = filmsByDirector.get(directorId);
+            films.remove(filmId);
+            if (films.isEmpty()) {
+                filmsByDirector.remove(directorId);
+            }
+        }
+    }
+
+    private static Set<Long> directorIdsOf(Film film) {
+        Set<Long> directorIds = new HashSet<>();
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                directorIds.add(director.getId());
+            }
+        }
+        return directorIds;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Тексты по id и списки вхождений их триграмм. Синхронизацию обеспечивает FilmSearchIndex.
+     */
+    private static class TextIndex {
+        private final Map<Long, String> texts = new HashMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+
+        void put(Long id, String text) {
+            String lowerText = text.toLowerCase(Locale.ROOT);
+            texts.put(id, lowerText);
+            for (String gram : grams(lowerText)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            String text = texts.remove(id);
+            if (text == null) {
+                return;
+            }
+            for (String gram : grams(text)) {
+                Set<Long> ids = postings.get(gram);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+
+        List<Long> find(String query) {
+            // Запрос короче триграммы не сужается индексом, такие запросы проверяются по всем текстам
+            if (query.length() < GRAM_LENGTH) {
+                return matching(texts.keySet(), query);
+            }
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : grams(query)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> candidates = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(lists.get(i));
+            }
+            // Совпадение всех триграмм не гарантирует вхождение подстроки целиком
+            return matching(candidates, query);
+        }
+
+        void clear() {
+            texts.clear();
+            postings.clear();
+        }
+
+        private List<Long> matching(Collection<Long> ids, String query) {
+            List<Long> result = new ArrayList<>();
+            for (Long id : ids) {
+                if (texts.get(id).contains(query)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+    }
+}
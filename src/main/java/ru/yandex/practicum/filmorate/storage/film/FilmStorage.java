@@ -1,22 +1,34 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     List<Film> getAll();
 
+    List<Film> getPage(Long afterId, int limit);
+
+    void streamAll(Consumer<List<Film>> consumer);
+
     Optional<Film> getById(Long id);
 
+    boolean exists(Long id);
+
     Film create(Film film);
 
     Film update(Film film);
 
     void delete(Long id);
 
-    List<Film> searchFilms(String query, boolean searchByTitle, boolean searchByDirector);
+    List<Film> getPopularFilms(int count);
+
+    List<Film> searchFilms(String query, boolean searchByTitle, boolean searchByDirector, int offset, int limit);
+
+    List<Suggestion> suggest(String prefix, int limit);
 
     List<Film> getPopularFilmsByGenreAndYear(int count, Long genreId, Integer year);
 
@@ -24,7 +36,11 @@ public interface FilmStorage {
 
     List<Film> getPopularFilmsByYear(int count, Integer year);
 
+    List<Film> getFilmsByDirector(Long directorId, String sortBy);
+
     void deleteFilmById(Long filmId);
 
     List<Film> getByIds(List<Long> ids);
+
+    void loadLikes(List<Film> films);
 }
\ No newline at end of file
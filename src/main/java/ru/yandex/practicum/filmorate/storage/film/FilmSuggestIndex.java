@@ -0,0 +1,350 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.change.DirectorChange;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Префиксное дерево по нормализованным названиям фильмов и именам режиссёров для автодополнения.
+ * Каждый узел хранит готовый список из {@link #TOP_N} самых популярных завершений своего префикса:
+ * для фильма популярность - число лайков, для режиссёра - сумма лайков его фильмов.
+ * При изменении записи списки пересчитываются снизу вверх по её пути из списков дочерних узлов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSuggestIndex {
+    public static final int TOP_N = 10;
+
+    private static final Comparator<Entry> BY_RANK = Comparator.comparingInt((Entry entry) -> entry.likes)
+            .reversed()
+            .thenComparing(entry -> entry.text)
+            .thenComparing(entry -> entry.id);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Node root = new Node();
+    private final Map<Long, Entry> films = new HashMap<>();
+    private final Map<Long, Entry> directors = new HashMap<>();
+    private final Map<Long, Set<Long>> directorsByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, Entry> loadedFilms = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, likes_count FROM films", rs -> {
+            long id = rs.getLong("id");
+            loadedFilms.put(id, new Entry(Suggestion.Type.FILM, id, rs.getString("name"), rs.getInt("likes_count")));
+        });
+        Map<Long, Entry> loadedDirectors = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM directors", rs -> {
+            long id = rs.getLong("id");
+            loadedDirectors.put(id, new Entry(Suggestion.Type.DIRECTOR, id, rs.getString("name"), 0));
+        });
+        Map<Long, Set<Long>> loadedLinks = new HashMap<>();
+        jdbcTemplate.query("SELECT director_id, film_id FROM directors_films", rs -> {
+            loadedLinks.computeIfAbsent(rs.getLong("film_id"), k -> new HashSet<>()).add(rs.getLong("director_id"));
+        });
+        loadedLinks.forEach((filmId, directorIds) -> {
+            Entry film = loadedFilms.get(filmId);
+            for (Long directorId : directorIds) {
+                Entry director = loadedDirectors.get(directorId);
+                if (film != null && director != null) {
+                    director.likes += film.likes;
+                }
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            root.clear();
+            films.clear();
+            directors.clear();
+            directorsByFilm.clear();
+            loadedFilms.values().forEach(this::insert);
+            loadedDirectors.values().forEach(this::insert);
+            films.putAll(loadedFilms);
+            directors.putAll(loadedDirectors);
+            directorsByFilm.putAll(loadedLinks);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс автодополнения построен для {} фильмов и {} режиссеров",
+                loadedFilms.size(), loadedDirectors.size());
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            List<Suggestion> result = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int i = 0; i < node.top.length && i < limit; i++) {
+                Entry entry = node.top[i];
+                result.add(new Suggestion(entry.type, entry.id, entry.text, entry.likes));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onLikeChange(LikeChange change) {
+        lock.writeLock().lock();
+        try {
+            Entry film = films.get(change.filmId());
+            if (film == null) {
+                return;
+            }
+            int delta = change.added() ? 1 : -1;
+            rescore(film, film.likes + delta);
+            for (Long directorId : directorsByFilm.getOrDefault(change.filmId(), Collections.emptySet())) {
+                Entry director = directors.get(directorId);
+                if (director != null) {
+                    rescore(director, director.likes + delta);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = films.remove(change.filmId());
+            int likes = previous != null ? previous.likes : 0;
+            if (previous != null) {
+                remove(previous);
+            }
+            moveLikes(directorsByFilm.remove(change.filmId()), -likes);
+            if (change.type() != FilmChange.Type.DELETED) {
+                Film film = change.film();
+                Entry entry = new Entry(Suggestion.Type.FILM, film.getId(), film.getName(), likes);
+                films.put(film.getId(), entry);
+                insert(entry);
+                Set<Long> directorIds = directorIdsOf(film);
+                if (!directorIds.isEmpty()) {
+                    directorsByFilm.put(film.getId(), directorIds);
+                    moveLikes(directorIds, likes);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onDirectorChange(DirectorChange change) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = directors.remove(change.directorId());
+            if (previous != null) {
+                remove(previous);
+            }
+            if (!change.isDeleted()) {
+                int likes = previous != null ? previous.likes : 0;
+                Entry entry = new Entry(Suggestion.Type.DIRECTOR, change.directorId(), change.name(), likes);
+                directors.put(change.directorId(), entry);
+                insert(entry);
+            } else {
+                directorsByFilm.values().forEach(directorIds -> directorIds.remove(change.directorId()));
+                directorsByFilm.values().removeIf(Set::isEmpty);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void moveLikes(Set<Long> directorIds, int delta) {
+        if (directorIds == null || delta == 0) {
+            return;
+        }
+        for (Long directorId : directorIds) {
+            Entry director = directors.get(directorId);
+            if (director != null) {
+                rescore(director, director.likes + delta);
+            }
+        }
+    }
+
+    private void rescore(Entry entry, int likes) {
+        entry.likes = Math.max(likes, 0);
+        refresh(path(entry.key));
+    }
+
+    private void insert(Entry entry) {
+        Node node = root;
+        List<Node> path = new ArrayList<>(entry.key.length() + 1);
+        path.add(node);
+        for (int i = 0; i < entry.key.length(); i++) {
+            node = node.childOrCreate(entry.key.charAt(i));
+            path.add(node);
+        }
+        node.terminals.add(entry);
+        refresh(path);
+    }
+
+    private void remove(Entry entry) {
+        List<Node> path = path(entry.key);
+        if (path.size() != entry.key.length() + 1) {
+            return;
+        }
+        path.get(path.size() - 1).terminals.remove(entry);
+        // Опустевшие узлы отцепляются от родителя, остальные пересчитываются
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            if (node.isEmpty()) {
+                path.get(i - 1).removeChild(entry.key.charAt(i - 1));
+            }
+        }
+        refresh(path);
+    }
+
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.child(key.charAt(i));
+            if (node == null) {
+                break;
+            }
+            path.add(node);
+        }
+        return path;
+    }
+
+    private static void refresh(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).refreshTop();
+        }
+    }
+
+    private static Set<Long> directorIdsOf(Film film) {
+        Set<Long> directorIds = new HashSet<>();
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                directorIds.add(director.getId());
+            }
+        }
+        return directorIds;
+    }
+
+    static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final Suggestion.Type type;
+        private final Long id;
+        private final String text;
+        private final String key;
+        private int likes;
+
+        private Entry(Suggestion.Type type, Long id, String text, int likes) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.key = normalize(text);
+            this.likes = likes;
+        }
+    }
+
+    /**
+     * Узел дерева: дочерние узлы хранятся в массивах, отсортированных по символу,
+     * что заметно компактнее отдельной хеш-таблицы на каждый узел.
+     */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private final List<Entry> terminals = new ArrayList<>(1);
+        private Entry[] top = NO_ENTRIES;
+
+        Node child(char c) {
+            int position = Arrays.binarySearch(keys, c);
+            return position >= 0 ? children[position] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int position = Arrays.binarySearch(keys, c);
+            if (position >= 0) {
+                return children[position];
+            }
+            position = -position - 1;
+            Node child = new Node();
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newKeys[position] = c;
+            newChildren[position] = child;
+            System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char c) {
+            int position = Arrays.binarySearch(keys, c);
+            if (position < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(keys, position + 1, newKeys, position, keys.length - position - 1);
+            System.arraycopy(children, position + 1, newChildren, position, children.length - position - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return terminals.isEmpty() && children.length == 0;
+        }
+
+        // Лучшие завершения узла - лучшие из его собственных записей и списков дочерних узлов
+        void refreshTop() {
+            List<Entry> candidates = new ArrayList<>(terminals);
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            candidates.sort(BY_RANK);
+            top = candidates.subList(0, Math.min(TOP_N, candidates.size())).toArray(NO_ENTRIES);
+        }
+
+        void clear() {
+            keys = NO_KEYS;
+            children = NO_CHILDREN;
+            terminals.clear();
+            top = NO_ENTRIES;
+        }
+    }
+}
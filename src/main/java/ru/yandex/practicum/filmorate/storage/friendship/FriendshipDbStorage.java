@@ -3,6 +3,12 @@ package ru.yandex.practicum.filmorate.storage.friendship;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.change.FriendshipChange;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -11,36 +17,61 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FriendshipDbStorage implements FriendshipStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final IdBatchLoader idBatchLoader;
+    private final ChangePublisher changePublisher;
+    private final FriendshipGraph friendshipGraph;
+    private final FriendshipPathFinder friendshipPathFinder;
 
     @Override
     public void addFriend(Long userId, Long friendId) {
         String sql = "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)";
         jdbcTemplate.update(sql, userId, friendId);
+        FriendshipChange change = new FriendshipChange(userId, friendId, true);
+        changePublisher.publish(change);
+    }
+
+    /**
+     * Вставляет пачкой связи, которых ещё нет в базе, и возвращает вставленные.
+     * Выполняется во вложенной транзакции: если параллельный запрос успел добавить ту же связь,
+     * пачка откатывается до точки сохранения с DuplicateKeyException и её можно повторить.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NESTED)
+    public List<FriendshipEdge> addFriends(List<FriendshipEdge> edges) {
+        String sql = "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+        List<Object[]> batchArgs = edges.stream()
+                .map(edge -> new Object[]{edge.getUserId(), edge.getFriendId(), edge.getUserId(), edge.getFriendId()})
+                .collect(Collectors.toList());
+        int[] counts = jdbcTemplate.batchUpdate(sql, batchArgs);
+        List<FriendshipEdge> added = new ArrayList<>();
+        for (int i = 0; i < edges.size(); i++) {
+            if (counts[i] > 0) {
+                FriendshipEdge edge = edges.get(i);
+                added.add(edge);
+                changePublisher.publish(new FriendshipChange(edge.getUserId(), edge.getFriendId(), true));
+            }
+        }
+        return added;
     }
 
     @Override
     public void removeFriend(Long userId, Long friendId) {
         String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        if (jdbcTemplate.update(sql, userId, friendId) > 0) {
+            FriendshipChange change = new FriendshipChange(userId, friendId, false);
+            changePublisher.publish(change);
+        }
     }
 
     @Override
     public Set<Long> getFriends(Long userId) {
-        String sql = "SELECT friend_id FROM friendships WHERE user_id = ?";
-        return new HashSet<>(jdbcTemplate.query(sql,
-                new Object[]{userId},
-                (rs, rowNum) -> rs.getLong("friend_id")));
+        return toSet(friendshipGraph.getFriendIds(userId));
     }
 
     @Override
     public Set<Long> getCommonFriends(Long userId, Long otherId) {
-        String sql = "SELECT f1.friend_id " +
-                "FROM friendships f1 " +
-                "JOIN friendships f2 ON f1.friend_id = f2.friend_id " +
-                "WHERE f1.user_id = ? AND f2.user_id = ?";
-        return new HashSet<>(jdbcTemplate.query(sql,
-                new Object[]{userId, otherId},
-                (rs, rowNum) -> rs.getLong("friend_id")));
+        return toSet(friendshipGraph.getCommonFriendIds(userId, otherId));
     }
 
     @Override
@@ -49,14 +80,10 @@ public class FriendshipDbStorage implements FriendshipStorage {
             return Collections.emptyMap();
         }
 
-        String inClause = userIds.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
-
-        String sql = "SELECT user_id, friend_id FROM friendships WHERE user_id IN (" + inClause + ")";
+        String sql = "SELECT user_id, friend_id FROM friendships WHERE user_id = ANY(?)";
 
         Map<Long, Set<Long>> friendsMap = new HashMap<>();
-        jdbcTemplate.query(sql, rs -> {
+        idBatchLoader.query(sql, userIds, rs -> {
             Long userId = rs.getLong("user_id");
             Long friendId = rs.getLong("friend_id");
             friendsMap.computeIfAbsent(userId, k -> new HashSet<>()).add(friendId);
@@ -67,16 +94,35 @@ public class FriendshipDbStorage implements FriendshipStorage {
 
     @Override
     public void removeAllFriendshipsForUser(Long userId) {
+        List<FriendshipChange> removed = jdbcTemplate.query(
+                "SELECT user_id, friend_id FROM friendships WHERE user_id = ? OR friend_id = ?",
+                (rs, rowNum) -> new FriendshipChange(rs.getLong("user_id"), rs.getLong("friend_id"), false),
+                userId, userId);
         String sql = "DELETE FROM friendships WHERE user_id = ? OR friend_id = ?";
         jdbcTemplate.update(sql, userId, userId);
+        removed.forEach(change -> changePublisher.publish(change));
     }
 
     @Override
     public boolean areFriends(Long userId, Long friendId) {
-        String sql = "SELECT COUNT(*) FROM friendships WHERE user_id = ? AND friend_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId, friendId);
-        return count != null && count > 0;
+        return friendshipGraph.areFriends(userId, friendId);
     }
 
+    @Override
+    public List<Long> getFriendSuggestions(Long userId, int limit) {
+        return friendshipGraph.suggestFriends(userId, limit);
+    }
 
-}
\ No newline at end of file
+    @Override
+    public List<Long> getPath(Long userId, Long otherId, int maxDepth) {
+        return friendshipPathFinder.findPath(userId, otherId, maxDepth);
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> result = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,344 @@
+package ru.yandex.practicum.filmorate.storage.friendship;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LongDoubleMap;
+import ru.yandex.practicum.filmorate.storage.change.FriendshipChange;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Граф дружбы в памяти (рёбра направленные, как строки таблицы friendships).
+ * Основная часть хранится в формате CSR: отсортированные id пользователей, смещения их строк
+ * и общий массив отсортированных id друзей. Изменённые после построения строки копируются
+ * в отдельную карту (copy-on-write), а когда таких строк становится много, CSR пересобирается из памяти.
+ * Чтение идёт без блокировок по неизменяемому снимку. Так же хранятся обратные рёбра (кто добавил
+ * пользователя в друзья) - они нужны для встречного поиска пути.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendshipGraph {
+    private static final long[] EMPTY = new long[0];
+    // Изменённые строки сливаются в CSR, когда их больше этой доли от числа пользователей в CSR
+    private static final int COMPACTION_DIVISOR = 16;
+    // Меньше стольких друзей на поток обход на два шага не распараллеливается
+    private static final int SUGGESTIONS_SEQUENTIAL_THRESHOLD = 256;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Меньше стольких изменённых строк в CSR не сливаются независимо от размера графа
+    @Value("${filmorate.friends.compaction-min-size:1024}")
+    private int minCompactionSize;
+
+    private volatile Snapshot snapshot = emptySnapshot();
+    private volatile Snapshot followers = emptySnapshot();
+
+    @PostConstruct
+    public void rebuild() {
+        Snapshot loaded = load("SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id",
+                "user_id", "friend_id");
+        Snapshot loadedFollowers = load("SELECT user_id, friend_id FROM friendships ORDER BY friend_id, user_id",
+                "friend_id", "user_id");
+
+        synchronized (this) {
+            snapshot = loaded;
+            followers = loadedFollowers;
+        }
+        log.info("Граф дружбы построен: {} пользователей, {} связей", loaded.users().length, loaded.friends().length);
+    }
+
+    /**
+     * Возвращает отсортированные id друзей пользователя. Результат - копия, его можно изменять.
+     */
+    public long[] getFriendIds(Long userId) {
+        return copyRow(snapshot, userId);
+    }
+
+    private static long[] copyRow(Snapshot current, Long userId) {
+        long[] changed = current.changed().get(userId);
+        if (changed != null) {
+            return changed.clone();
+        }
+        int row = Arrays.binarySearch(current.users(), userId);
+        if (row < 0) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(current.friends(), current.offsets()[row], current.offsets()[row + 1]);
+    }
+
+    /**
+     * Передаёт action id друзей пользователя по возрастанию, не копируя строку.
+     */
+    public void forEachFriend(Long userId, LongConsumer action) {
+        forEach(snapshot, userId, action);
+    }
+
+    /**
+     * Передаёт action id пользователей, у которых данный пользователь есть в друзьях.
+     */
+    public void forEachFollower(Long userId, LongConsumer action) {
+        forEach(followers, userId, action);
+    }
+
+    private static void forEach(Snapshot current, Long userId, LongConsumer action) {
+        long[] row = current.row(userId);
+        int end = current.to(userId, row);
+        for (int i = current.from(userId, row); i < end; i++) {
+            action.accept(row[i]);
+        }
+    }
+
+    /**
+     * Проверяет наличие ребра userId -> friendId двоичным поиском по строке пользователя.
+     */
+    public boolean areFriends(Long userId, Long friendId) {
+        Snapshot current = snapshot;
+        long[] changed = current.changed().get(userId);
+        if (changed != null) {
+            return Arrays.binarySearch(changed, friendId) >= 0;
+        }
+        int row = Arrays.binarySearch(current.users(), userId);
+        return row >= 0 && Arrays.binarySearch(current.friends(),
+                current.offsets()[row], current.offsets()[row + 1], friendId) >= 0;
+    }
+
+    /**
+     * Возвращает общих друзей двух пользователей по возрастанию id: строки сливаются на месте,
+     * выделяется только массив результата.
+     */
+    public long[] getCommonFriendIds(Long userId, Long otherId) {
+        Snapshot current = snapshot;
+        long[] first = current.row(userId);
+        int firstFrom = current.from(userId, first);
+        int firstTo = current.to(userId, first);
+        long[] second = current.row(otherId);
+        int secondFrom = current.from(otherId, second);
+        int secondTo = current.to(otherId, second);
+
+        long[] result = new long[Math.min(firstTo - firstFrom, secondTo - secondFrom)];
+        int size = 0;
+        int i = firstFrom;
+        int j = secondFrom;
+        while (i < firstTo && j < secondTo) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Ранжирует пользователей, ещё не являющихся друзьями, по числу друзей пользователя,
+     * у которых они есть в друзьях (обход на два шага). Строки друзей делятся на части,
+     * которые при большом окружении считаются параллельно, счётчики частей затем складываются.
+     */
+    public List<Long> suggestFriends(Long userId, int limit) {
+        Snapshot current = snapshot;
+        long[] friends = copyRow(current, userId);
+        if (friends.length == 0) {
+            return Collections.emptyList();
+        }
+        int parts = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(),
+                friends.length / SUGGESTIONS_SEQUENTIAL_THRESHOLD));
+        LongDoubleMap counts = IntStream.range(0, parts).parallel()
+                .mapToObj(part -> countSecondHop(current, userId, friends,
+                        friends.length * part / parts, friends.length * (part + 1) / parts))
+                .reduce((left, right) -> {
+                    left.addAll(right);
+                    return left;
+                })
+                .orElseThrow();
+        return counts.top(limit);
+    }
+
+    private static LongDoubleMap countSecondHop(Snapshot current, long userId, long[] friends, int from, int to) {
+        LongDoubleMap counts = new LongDoubleMap((to - from) * 4);
+        for (int i = from; i < to; i++) {
+            long[] row = current.row(friends[i]);
+            int end = current.to(friends[i], row);
+            for (int j = current.from(friends[i], row); j < end; j++) {
+                long candidateId = row[j];
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    counts.add(candidateId, 1);
+                }
+            }
+        }
+        return counts;
+    }
+
+    @EventListener
+    public synchronized void onFriendshipChange(FriendshipChange change) {
+        snapshot = apply(snapshot, change.userId(), change.friendId(), change.added());
+        followers = apply(followers, change.friendId(), change.userId(), change.added());
+    }
+
+    private Snapshot apply(Snapshot current, Long rowId, Long neighbourId, boolean added) {
+        long[] row = current.changed().get(rowId);
+        if (row == null) {
+            row = copyRow(current, rowId);
+        }
+        long[] updated = added ? insert(row, neighbourId) : remove(row, neighbourId);
+        if (updated == row) {
+            return current;
+        }
+        // Пустая строка тоже хранится: она перекрывает строку пользователя в CSR
+        current.changed().put(rowId, updated);
+        if (current.changed().size() > Math.max(minCompactionSize, current.users().length / COMPACTION_DIVISOR)) {
+            return compact(current);
+        }
+        return current;
+    }
+
+    // Число строк, изменённых после последней сборки CSR
+    int getChangedRowCount() {
+        return snapshot.changed().size();
+    }
+
+    private Snapshot load(String sql, String rowColumn, String neighbourColumn) {
+        LongBuffer users = new LongBuffer();
+        LongBuffer friends = new LongBuffer();
+        List<Integer> offsets = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            long userId = rs.getLong(rowColumn);
+            if (users.size == 0 || users.values[users.size - 1] != userId) {
+                users.add(userId);
+                offsets.add(friends.size);
+            }
+            friends.add(rs.getLong(neighbourColumn));
+        });
+        offsets.add(friends.size);
+        return new Snapshot(users.toArray(), offsets.stream().mapToInt(Integer::intValue).toArray(),
+                friends.toArray(), new ConcurrentHashMap<>());
+    }
+
+    private static Snapshot emptySnapshot() {
+        return new Snapshot(EMPTY, new int[]{0}, EMPTY, new ConcurrentHashMap<>());
+    }
+
+    private static Snapshot compact(Snapshot current) {
+        TreeMap<Long, long[]> changed = new TreeMap<>(current.changed());
+        LongBuffer users = new LongBuffer();
+        LongBuffer friends = new LongBuffer();
+        List<Integer> offsets = new ArrayList<>();
+        int row = 0;
+        long[] base = current.users();
+        while (row < base.length || !changed.isEmpty()) {
+            long userId;
+            long[] source;
+            int from;
+            int to;
+            Map.Entry<Long, long[]> next = changed.firstEntry();
+            if (next != null && (row >= base.length || next.getKey() <= base[row])) {
+                userId = next.getKey();
+                source = next.getValue();
+                from = 0;
+                to = source.length;
+                changed.pollFirstEntry();
+                if (row < base.length && base[row] == userId) {
+                    row++;
+                }
+            } else {
+                userId = base[row];
+                source = current.friends();
+                from = current.offsets()[row];
+                to = current.offsets()[row + 1];
+                row++;
+            }
+            if (from < to) {
+                users.add(userId);
+                offsets.add(friends.size);
+                for (int i = from; i < to; i++) {
+                    friends.add(source[i]);
+                }
+            }
+        }
+        offsets.add(friends.size);
+        return new Snapshot(users.toArray(), offsets.stream().mapToInt(Integer::intValue).toArray(),
+                friends.toArray(), new ConcurrentHashMap<>());
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        position = -position - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        result[position] = id;
+        System.arraycopy(ids, position, result, position + 1, ids.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        return result;
+    }
+
+    /**
+     * Неизменяемый CSR и карта строк, изменённых после его построения. Строки в карте не изменяются
+     * после публикации: запись кладёт новый массив.
+     */
+    private record Snapshot(long[] users, int[] offsets, long[] friends, Map<Long, long[]> changed) {
+
+        // Массив, в котором лежит строка пользователя: собственный массив изменённой строки или общий CSR
+        long[] row(Long userId) {
+            long[] row = changed.get(userId);
+            return row != null ? row : friends;
+        }
+
+        int from(Long userId, long[] row) {
+            if (row != friends) {
+                return 0;
+            }
+            int index = Arrays.binarySearch(users, userId);
+            return index >= 0 ? offsets[index] : 0;
+        }
+
+        int to(Long userId, long[] row) {
+            if (row != friends) {
+                return row.length;
+            }
+            int index = Arrays.binarySearch(users, userId);
+            return index >= 0 ? offsets[index + 1] : 0;
+        }
+    }
+
+    private static final class LongBuffer {
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package ru.yandex.practicum.filmorate.storage.friendship;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Кратчайшая цепочка друзей между двумя пользователями: встречный поиск в ширину по {@link FriendshipGraph}.
+ * Прямой поиск идёт по спискам друзей от первого пользователя, обратный - по обратным рёбрам от второго;
+ * на каждом шаге расширяется меньший фронт. Посещённые пользователи хранятся в примитивных хеш-таблицах,
+ * их общее число ограничено visit-budget, поэтому один запрос не обходит весь граф.
+ */
+@Component
+@RequiredArgsConstructor
+public class FriendshipPathFinder {
+    private final FriendshipGraph friendshipGraph;
+
+    @Value("${filmorate.friends.path-max-depth:6}")
+    private int maxDepth;
+
+    @Value("${filmorate.friends.path-visit-budget:100000}")
+    private int visitBudget;
+
+    /**
+     * Возвращает id пользователей цепочки от userId до otherId включительно или пустой список,
+     * если цепочки не длиннее depthLimit нет или бюджет посещений исчерпан раньше.
+     */
+    public List<Long> findPath(long userId, long otherId, int depthLimit) {
+        if (userId == otherId) {
+            return List.of(userId);
+        }
+        int depth = Math.min(depthLimit, maxDepth);
+        Side forward = new Side(userId, true);
+        Side backward = new Side(otherId, false);
+        int[] visits = {2};
+        while (forward.depth + backward.depth < depth && forward.size > 0 && backward.size > 0) {
+            Side expanded = forward.size <= backward.size ? forward : backward;
+            Side opposite = expanded == forward ? backward : forward;
+            long meeting = expand(expanded, opposite, visits);
+            if (meeting != 0) {
+                return join(forward, backward, meeting);
+            }
+            if (visits[0] > visitBudget) {
+                break;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Расширяет фронт стороны на один уровень. Если новый пользователь уже посещён другой стороной,
+     * возвращает точку встречи с наименьшей суммарной длиной цепочки на этом уровне, иначе 0.
+     */
+    private long expand(Side side, Side opposite, int[] visits) {
+        long[] frontier = side.frontier;
+        int size = side.size;
+        side.next = new long[Math.max(16, size)];
+        side.nextSize = 0;
+        long[] meeting = {0, Long.MAX_VALUE};
+        for (int i = 0; i < size && visits[0] <= visitBudget; i++) {
+            long parent = frontier[i];
+            LongConsumer action = neighbour -> {
+                if (side.visited.contains(neighbour) || visits[0] > visitBudget) {
+                    return;
+                }
+                side.visited.put(neighbour, parent, side.depth + 1);
+                visits[0]++;
+                side.push(neighbour);
+                int oppositeDepth = opposite.visited.depth(neighbour);
+                if (oppositeDepth >= 0 && oppositeDepth < meeting[1]) {
+                    meeting[0] = neighbour;
+                    meeting[1] = oppositeDepth;
+                }
+            };
+            if (side.forward) {
+                friendshipGraph.forEachFriend(parent, action);
+            } else {
+                friendshipGraph.forEachFollower(parent, action);
+            }
+        }
+        side.frontier = side.next;
+        side.size = side.nextSize;
+        side.depth++;
+        return meeting[0];
+    }
+
+    private static List<Long> join(Side forward, Side backward, long meeting) {
+        List<Long> path = new ArrayList<>();
+        for (long id = meeting; id != 0; id = forward.visited.parent(id)) {
+            path.add(id);
+        }
+        Collections.reverse(path);
+        for (long id = backward.visited.parent(meeting); id != 0; id = backward.visited.parent(id)) {
+            path.add(id);
+        }
+        return path;
+    }
+
+    private static final class Side {
+        private final boolean forward;
+        private final VisitedMap visited = new VisitedMap();
+        private long[] frontier;
+        private int size;
+        private long[] next;
+        private int nextSize;
+        private int depth;
+
+        Side(long start, boolean forward) {
+            this.forward = forward;
+            visited.put(start, 0, 0);
+            frontier = new long[]{start};
+            size = 1;
+        }
+
+        void push(long id) {
+            if (nextSize == next.length) {
+                next = Arrays.copyOf(next, nextSize * 2);
+            }
+            next[nextSize++] = id;
+        }
+    }
+
+    /**
+     * Посещённые пользователи: id, родитель в дереве поиска и глубина в трёх параллельных массивах
+     * с открытой адресацией. Id положительные, 0 обозначает пустую ячейку и отсутствие родителя.
+     */
+    private static final class VisitedMap {
+        private long[] keys = new long[64];
+        private long[] parents = new long[64];
+        private int[] depths = new int[64];
+        private int size;
+
+        boolean contains(long key) {
+            return keys[slot(keys, key)] == key;
+        }
+
+        long parent(long key) {
+            return parents[slot(keys, key)];
+        }
+
+        int depth(long key) {
+            int slot = slot(keys, key);
+            return keys[slot] == key ? depths[slot] : -1;
+        }
+
+        void put(long key, long parent, int depth) {
+            int slot = slot(keys, key);
+            keys[slot] = key;
+            parents[slot] = parent;
+            depths[slot] = depth;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldParents = parents;
+            int[] oldDepths = depths;
+            keys = new long[oldKeys.length * 2];
+            parents = new long[oldKeys.length * 2];
+            depths = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    parents[slot] = oldParents[i];
+                    depths[slot] = oldDepths[i];
+                }
+            }
+        }
+
+        private static int slot(long[] keys, long key) {
+            int mask = keys.length - 1;
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
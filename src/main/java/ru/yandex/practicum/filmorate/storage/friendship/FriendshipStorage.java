@@ -1,11 +1,16 @@
 package ru.yandex.practicum.filmorate.storage.friendship;
 
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
+
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public interface FriendshipStorage {
     void addFriend(Long userId, Long friendId);
 
+    List<FriendshipEdge> addFriends(List<FriendshipEdge> edges);
+
     void removeFriend(Long userId, Long friendId);
 
     Set<Long> getFriends(Long userId);
@@ -17,4 +22,8 @@ public interface FriendshipStorage {
     void removeAllFriendshipsForUser(Long userId);
 
     boolean areFriends(Long userId, Long friendId); // метод для проверки дружбы
+
+    List<Long> getFriendSuggestions(Long userId, int limit);
+
+    List<Long> getPath(Long userId, Long otherId, int maxDepth);
 }
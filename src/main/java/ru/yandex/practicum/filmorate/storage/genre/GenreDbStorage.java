@@ -4,14 +4,15 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final IdBatchLoader idBatchLoader;
 
     @Override
     public List<Genre> getAll() {
@@ -39,13 +40,9 @@ public class GenreDbStorage implements GenreStorage {
             return Collections.emptySet();
         }
 
-        String inClause = genreIds.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
+        String sql = "SELECT id FROM genres WHERE id = ANY(?)";
 
-        String sql = "SELECT id FROM genres WHERE id IN (" + inClause + ")";
-
-        return new HashSet<>(jdbcTemplate.query(sql,
+        return new HashSet<>(idBatchLoader.query(sql, genreIds,
                 (rs, rowNum) -> rs.getLong("id")));
     }
 }
\ No newline at end of file
@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Рейтинги популярности фильмов: общий, по жанру, по году выпуска и по паре жанр + год.
+ * Строится из счётчика films.likes_count при старте и обновляется при лайках и изменениях фильмов,
+ * поэтому выборка популярных фильмов не требует агрегации в базе.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmPopularityIndex {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, FilmEntry> films = new HashMap<>();
+    private final Leaderboard all = new Leaderboard();
+    private final Map<Long, Leaderboard> byGenre = new HashMap<>();
+    private final Map<Integer, Leaderboard> byYear = new HashMap<>();
+    private final Map<GenreYear, Leaderboard> byGenreAndYear = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        String filmsSql = "SELECT id, release_date, likes_count FROM films";
+        String genresSql = "SELECT film_id, genre_id FROM film_genres";
+
+        Map<Long, Set<Long>> filmGenres = new HashMap<>();
+        jdbcTemplate.query(genresSql, rs -> {
+            filmGenres.computeIfAbsent(rs.getLong("film_id"), k -> new HashSet<>()).add(rs.getLong("genre_id"));
+        });
+
+        Map<Long, FilmEntry> entries = new HashMap<>();
+        jdbcTemplate.query(filmsSql, rs -> {
+            long filmId = rs.getLong("id");
+            entries.put(filmId, new FilmEntry(
+                    rs.getInt("likes_count"),
+                    rs.getDate("release_date").toLocalDate().getYear(),
+                    filmGenres.getOrDefault(filmId, Collections.emptySet())));
+        });
+
+        lock.writeLock().lock();
+        try {
+            films.clear();
+            all.clear();
+            byGenre.clear();
+            byYear.clear();
+            byGenreAndYear.clear();
+            entries.forEach(this::place);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Рейтинги популярности построены для {} фильмов", entries.size());
+    }
+
+    public List<Long> getTopFilmIds(int count) {
+        lock.readLock().lock();
+        try {
+            return all.top(count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> getTopFilmIdsByGenre(int count, Long genreId) {
+        return top(byGenre, genreId, count);
+    }
+
+    public List<Long> getTopFilmIdsByYear(int count, Integer year) {
+        return top(byYear, year, count);
+    }
+
+    public List<Long> getTopFilmIdsByGenreAndYear(int count, Long genreId, Integer year) {
+        return top(byGenreAndYear, new GenreYear(genreId, year), count);
+    }
+
+    /**
+     * Упорядочивает фильмы по убыванию лайков (при равенстве - по id) и возвращает страницу [offset, offset + limit).
+     * Ранжирование идёт через кучу ограниченного размера, поэтому полная сортировка кандидатов не нужна.
+     */
+    public List<Long> rank(Collection<Long> filmIds, int offset, int limit) {
+        int size = (int) Math.min((long) offset + limit, filmIds.size());
+        if (size <= offset) {
+            return Collections.emptyList();
+        }
+        Comparator<RankedFilm> byRank = Comparator.comparingInt(RankedFilm::likes).reversed()
+                .thenComparing(RankedFilm::filmId);
+        PriorityQueue<RankedFilm> heap = new PriorityQueue<>(size, byRank.reversed());
+        lock.readLock().lock();
+        try {
+            for (Long filmId : filmIds) {
+                FilmEntry entry = films.get(filmId);
+                RankedFilm candidate = new RankedFilm(filmId, entry != null ? entry.likes() : 0);
+                if (heap.size() < size) {
+                    heap.add(candidate);
+                } else if (byRank.compare(candidate, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<RankedFilm> ranked = new ArrayList<>(heap);
+        ranked.sort(byRank);
+        return ranked.subList(offset, ranked.size()).stream()
+                .map(RankedFilm::filmId)
+                .collect(Collectors.toList());
+    }
+
+    public int getLikesCount(Long filmId) {
+        lock.readLock().lock();
+        try {
+            FilmEntry entry = films.get(filmId);
+            return entry != null ? entry.likes() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onLikeChange(LikeChange change) {
+        lock.writeLock().lock();
+        try {
+            FilmEntry entry = unplace(change.filmId());
+            if (entry == null) {
+                entry = new FilmEntry(0, null, Collections.emptySet());
+            }
+            int likes = Math.max(entry.likes() + (change.added() ? 1 : -1), 0);
+            place(change.filmId(), new FilmEntry(likes, entry.year(), entry.genreIds()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        lock.writeLock().lock();
+        try {
+            FilmEntry entry = unplace(change.filmId());
+            if (change.type() != FilmChange.Type.DELETED) {
+                place(change.filmId(), new FilmEntry(entry != null ? entry.likes() : 0,
+                        yearOf(change.film()), genreIdsOf(change.film())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <K> List<Long> top(Map<K, Leaderboard> leaderboards, K key, int count) {
+        lock.readLock().lock();
+        try {
+            Leaderboard leaderboard = leaderboards.get(key);
+            return leaderboard != null ? leaderboard.top(count) : Collections.emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void place(Long filmId, FilmEntry entry) {
+        films.put(filmId, entry);
+        all.put(filmId, entry.likes());
+        if (entry.year() != null) {
+            byYear.computeIfAbsent(entry.year(), k -> new Leaderboard()).put(filmId, entry.likes());
+        }
+        for (Long genreId : entry.genreIds()) {
+            byGenre.computeIfAbsent(genreId, k -> new Leaderboard()).put(filmId, entry.likes());
+            if (entry.year() != null) {
+                byGenreAndYear.computeIfAbsent(new GenreYear(genreId, entry.year()), k -> new Leaderboard())
+                        .put(filmId, entry.likes());
+            }
+        }
+    }
+
+    private FilmEntry unplace(Long filmId) {
+        FilmEntry entry = films.remove(filmId);
+        if (entry == null) {
+            return null;
+        }
+        all.remove(filmId);
+        if (entry.year() != null) {
+            removeFrom(byYear, entry.year(), filmId);
+        }
+        for (Long genreId : entry.genreIds()) {
+            removeFrom(byGenre, genreId, filmId);
+            if (entry.year() != null) {
+                removeFrom(byGenreAndYear, new GenreYear(genreId, entry.year()), filmId);
+            }
+        }
+        return entry;
+    }
+
+    private <K> void removeFrom(Map<K, Leaderboard> leaderboards, K key, Long filmId) {
+        Leaderboard leaderboard = leaderboards.get(key);
+        if (leaderboard != null) {
+            leaderboard.remove(filmId);
+            if (leaderboard.isEmpty()) {
+                leaderboards.remove(key);
+            }
+        }
+    }
+
+    private static Integer yearOf(Film film) {
+        return film.getReleaseDate() != null ? film.getReleaseDate().getYear() : null;
+    }
+
+    private static Set<Long> genreIdsOf(Film film) {
+        if (film.getGenres() == null) {
+            return Collections.emptySet();
+        }
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private record FilmEntry(int likes, Integer year, Set<Long> genreIds) {
+    }
+
+    private record GenreYear(Long genreId, Integer year) {
+    }
+
+    private record RankedFilm(Long filmId, int likes) {
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import java.util.*;
+
+/**
+ * Список фильмов, упорядоченный по числу лайков.
+ * Фильмы разложены по корзинам "число лайков -> id фильмов", корзины идут по убыванию,
+ * внутри корзины фильмы упорядочены по id. Выборка top-K стоит O(K).
+ * Класс не потокобезопасен, синхронизацию обеспечивает владелец.
+ */
+class Leaderboard {
+    private final Map<Long, Integer> likeCounts = new HashMap<>();
+    private final NavigableMap<Integer, NavigableSet<Long>> filmsByLikes = new TreeMap<>(Comparator.reverseOrder());
+
+    void put(Long filmId, int likes) {
+        remove(filmId);
+        likeCounts.put(filmId, likes);
+        filmsByLikes.computeIfAbsent(likes, k -> new TreeSet<>()).add(filmId);
+    }
+
+    void remove(Long filmId) {
+        Integer likes = likeCounts.remove(filmId);
+        if (likes == null) {
+            return;
+        }
+        NavigableSet<Long> films = filmsByLikes.get(likes);
+        films.remove(filmId);
+        if (films.isEmpty()) {
+            filmsByLikes.remove(likes);
+        }
+    }
+
+    List<Long> top(int count) {
+        List<Long> result = new ArrayList<>(Math.max(count, 0));
+        for (NavigableSet<Long> films : filmsByLikes.values()) {
+            for (Long filmId : films) {
+                if (result.size() >= count) {
+                    return result;
+                }
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    boolean isEmpty() {
+        return likeCounts.isEmpty();
+    }
+
+    void clear() {
+        likeCounts.clear();
+        filmsByLikes.clear();
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+/**
+ * Принятая, но ещё не записанная в базу команда лайка (added = true) или его отмены.
+ * timestamp - время приёма, с ним же пишется событие ленты.
+ */
+public record LikeCommand(Long filmId, Long userId, boolean added, long timestamp) {
+}
@@ -1,44 +1,137 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 @Repository
 @RequiredArgsConstructor
 public class LikeDbStorage implements LikeStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ChangePublisher changePublisher;
+    private final UserLikesIndex userLikesIndex;
 
     @Override
+    @Transactional
     public void addLike(Long filmId, Long userId) {
-        String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+        String sql = "INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+        try {
+            if (jdbcTemplate.update(sql, filmId, userId, filmId, userId) == 0) {
+                return;
+            }
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос вставил ту же пару между проверкой и вставкой, счётчик уже увеличен им
+            return;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+        LikeChange change = new LikeChange(filmId, userId, true);
+        changePublisher.publish(change);
     }
 
     @Override
+    @Transactional
     public void removeLike(Long filmId, Long userId) {
         String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        if (jdbcTemplate.update(sql, filmId, userId) > 0) {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+            LikeChange change = new LikeChange(filmId, userId, false);
+            changePublisher.publish(change);
+        }
+    }
+
+    /**
+     * Применяет пачку команд несколькими многострочными запросами: для каждой пары фильм-пользователь
+     * действует последняя команда пачки. Уже существующие лайки не вставляются повторно,
+     * отсутствующие не удаляются, счётчики фильмов меняются на итоговую разницу.
+     * Возвращает последние команды тех пар, состояние которых изменилось.
+     */
+    @Override
+    @Transactional
+    public List<LikeCommand> applyLikes(List<LikeCommand> commands) {
+        Map<List<Long>, LikeCommand> latest = new LinkedHashMap<>();
+        for (LikeCommand command : commands) {
+            latest.put(List.of(command.filmId(), command.userId()), command);
+        }
+        Set<List<Long>> existing = findExisting(latest.keySet());
+
+        List<List<Long>> inserted = new ArrayList<>();
+        List<List<Long>> deleted = new ArrayList<>();
+        List<LikeCommand> applied = new ArrayList<>();
+        latest.forEach((pair, command) -> {
+            if (command.added() && !existing.contains(pair)) {
+                inserted.add(pair);
+                applied.add(command);
+            } else if (!command.added() && existing.contains(pair)) {
+                deleted.add(pair);
+                applied.add(command);
+            }
+        });
+        if (!inserted.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES " + pairPlaceholders(inserted.size()),
+                    flatten(inserted));
+        }
+        if (!deleted.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM film_likes WHERE (film_id, user_id) IN ("
+                    + pairPlaceholders(deleted.size()) + ")", flatten(deleted));
+        }
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        inserted.forEach(pair -> deltas.merge(pair.get(0), 1, Integer::sum));
+        deleted.forEach(pair -> deltas.merge(pair.get(0), -1, Integer::sum));
+        List<Object[]> batchArgs = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> {
+            if (delta != 0) {
+                batchArgs.add(new Object[]{delta, filmId});
+            }
+        });
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?", batchArgs);
+
+        applied.forEach(command -> changePublisher.publish(
+                new LikeChange(command.filmId(), command.userId(), command.added())));
+        return applied;
+    }
+
+    private Set<List<Long>> findExisting(Collection<List<Long>> pairs) {
+        Set<List<Long>> existing = new HashSet<>();
+        jdbcTemplate.query("SELECT film_id, user_id FROM film_likes WHERE (film_id, user_id) IN ("
+                        + pairPlaceholders(pairs.size()) + ")",
+                rs -> {
+                    existing.add(List.of(rs.getLong("film_id"), rs.getLong("user_id")));
+                }, flatten(pairs));
+        return existing;
+    }
+
+    private static String pairPlaceholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "(?, ?)"));
+    }
+
+    private static Object[] flatten(Collection<List<Long>> pairs) {
+        Object[] args = new Object[pairs.size() * 2];
+        int i = 0;
+        for (List<Long> pair : pairs) {
+            args[i++] = pair.get(0);
+            args[i++] = pair.get(1);
+        }
+        return args;
     }
 
     @Override
     public int getLikesCount(Long filmId) {
-        String sql = "SELECT COUNT(*) FROM film_likes WHERE film_id = ?";
-        return jdbcTemplate.queryForObject(sql, Integer.class, filmId);
+        String sql = "SELECT likes_count FROM films WHERE id = ?";
+        List<Integer> counts = jdbcTemplate.queryForList(sql, Integer.class, filmId);
+        return counts.isEmpty() ? 0 : counts.get(0);
     }
 
     @Override
     public Set<Long> getCommonLikedFilms(Long userId, Long friendId) {
-        String sql = "SELECT f1.film_id " +
-                "FROM film_likes f1 " +
-                "JOIN film_likes f2 ON f1.film_id = f2.film_id " +
-                "WHERE f1.user_id = ? AND f2.user_id = ?";
-
-        return new HashSet<>(jdbcTemplate.query(sql,
-                new Object[]{userId, friendId},
-                (rs, rowNum) -> rs.getLong("film_id")));
+        return new LinkedHashSet<>(userLikesIndex.getCommonFilmIds(userId, friendId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,317 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Журнал принятых команд лайков: команда дописывается в файл и сбрасывается на диск до ответа клиенту.
+ * Сброс групповой: пока один поток выполняет fsync, остальные дописывают свои записи и ждут,
+ * следующий fsync покрывает их все.
+ * В заголовке файла хранится смещение первой неприменённой записи: команды применяются в порядке записи,
+ * и после каждой пачки смещение сдвигается. При запуске воспроизводится только хвост после него.
+ * Когда применено всё, файл обрезается до заголовка, а когда применённое начало превышает
+ * compactionBytes, неприменённый хвост переписывается в новый файл, который атомарно заменяет старый.
+ * Файл открывается методом {@link #open()}; пока журнал не открыт, команды хранятся только в памяти.
+ */
+@Slf4j
+@Component
+public class LikeJournal {
+    static final int MAGIC = 0x4C4B4A31;
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    static final int RECORD_BYTES = 1 + 3 * Long.BYTES;
+    private static final long COMPACTION_BYTES = 16L << 20;
+
+    private final Object lock = new Object();
+    private final Path path;
+    private final long compactionBytes;
+
+    private FileChannel channel;
+    // Физические смещения в текущем файле: начало неприменённых записей и конец записанных
+    private long applied;
+    private long written;
+    // Номера записей считаются с открытия журнала и переживают замену файла
+    private long appendedRecords;
+    private long syncedRecords;
+    private boolean syncing;
+
+    @Autowired
+    public LikeJournal(@Value("${filmorate.likes.journal-file:}") String file) {
+        this(file, COMPACTION_BYTES);
+    }
+
+    LikeJournal(String file, long compactionBytes) {
+        this.path = file.isBlank() ? null : Path.of(file);
+        this.compactionBytes = compactionBytes;
+    }
+
+    public boolean hasFile() {
+        return path != null;
+    }
+
+    /**
+     * Открывает файл журнала, если он задан. Оборванная при сбое последняя запись отбрасывается.
+     */
+    public void open() {
+        synchronized (lock) {
+            if (path == null || channel != null) {
+                return;
+            }
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                long size = channel.size();
+                if (size < HEADER_BYTES) {
+                    // Файл новый или оборван при создании, записей в нём нет
+                    channel.truncate(0);
+                    writeFully(channel, header(HEADER_BYTES), 0);
+                    channel.force(false);
+                    applied = HEADER_BYTES;
+                    written = HEADER_BYTES;
+                    return;
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                readFully(channel, header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("Файл " + path + " не является журналом лайков");
+                }
+                applied = header.getLong();
+                written = size - (size - HEADER_BYTES) % RECORD_BYTES;
+                if (applied < HEADER_BYTES || (applied - HEADER_BYTES) % RECORD_BYTES != 0) {
+                    throw new IOException("Повреждён заголовок журнала лайков " + path);
+                }
+                if (written != size) {
+                    log.warn("Из журнала лайков отброшена оборванная запись ({} байт)", size - written);
+                    channel.truncate(written);
+                }
+                if (applied > written) {
+                    // Обрезка файла дошла до диска, а заголовок нет: обрезается только полностью применённый журнал
+                    log.warn("Смещение применённых команд {} за концом журнала лайков {}, журнал считается применённым",
+                            applied, written);
+                    applied = written;
+                    writeFully(channel, header(applied), 0);
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Передаёт consumer неприменённые команды прошлого запуска пачками не больше batchSize и после
+     * каждой пачки отмечает её применённой. Файл читается по частям. Возвращает число команд.
+     */
+    public long replay(int batchSize, Consumer<List<LikeCommand>> consumer) {
+        ByteBuffer buffer = ByteBuffer.allocate(batchSize * RECORD_BYTES);
+        long replayed = 0;
+        while (true) {
+            synchronized (lock) {
+                if (channel == null || applied == written) {
+                    return replayed;
+                }
+                buffer.clear().limit((int) Math.min(buffer.capacity(), written - applied));
+                try {
+                    readFully(channel, buffer, applied);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            buffer.flip();
+            List<LikeCommand> batch = new ArrayList<>(buffer.remaining() / RECORD_BYTES);
+            while (buffer.hasRemaining()) {
+                boolean added = buffer.get() == 1;
+                batch.add(new LikeCommand(buffer.getLong(), buffer.getLong(), added, buffer.getLong()));
+            }
+            consumer.accept(batch);
+            markApplied(batch.size());
+            replayed += batch.size();
+        }
+    }
+
+    /**
+     * Дописывает команду и возвращается, когда она сброшена на диск.
+     */
+    public void append(LikeCommand command) {
+        awaitSynced(write(command));
+    }
+
+    /**
+     * Дописывает команду без ожидания сброса и возвращает её номер для {@link #awaitSynced(long)}.
+     * Порядок вызовов должен совпадать с порядком применения команд.
+     */
+    public long write(LikeCommand command) {
+        synchronized (lock) {
+            if (channel == null) {
+                return 0;
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES)
+                    .put((byte) (command.added() ? 1 : 0))
+                    .putLong(command.filmId())
+                    .putLong(command.userId())
+                    .putLong(command.timestamp())
+                    .flip();
+            try {
+                // При ошибке written не сдвигается, и недописанная запись будет перезаписана следующей
+                writeFully(channel, record, written);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written += RECORD_BYTES;
+            return ++appendedRecords;
+        }
+    }
+
+    /**
+     * Ждёт, пока запись с данным номером будет сброшена на диск.
+     */
+    public void awaitSynced(long record) {
+        while (true) {
+            FileChannel target;
+            long targetRecords;
+            synchronized (lock) {
+                if (channel == null || syncedRecords >= record) {
+                    return;
+                }
+                if (syncing) {
+                    waitForSync();
+                    continue;
+                }
+                syncing = true;
+                target = channel;
+                targetRecords = appendedRecords;
+            }
+            try {
+                target.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                synchronized (lock) {
+                    syncing = false;
+                    syncedRecords = Math.max(syncedRecords, targetRecords);
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Отмечает применёнными следующие count записей. Заголовок сбрасывается на диск вместе со следующей
+     * группой записей; если сбой случится раньше, часть применённых команд воспроизведётся повторно,
+     * что не меняет итог: для пары фильм-пользователь действует последняя команда.
+     * После обрезки файла заголовок сбрасывается сразу, иначе на диске он указывал бы за конец файла.
+     */
+    public void markApplied(int count) {
+        synchronized (lock) {
+            if (channel == null || count == 0) {
+                return;
+            }
+            applied += (long) count * RECORD_BYTES;
+            try {
+                if (applied == written) {
+                    channel.truncate(HEADER_BYTES);
+                    applied = HEADER_BYTES;
+                    written = HEADER_BYTES;
+                    writeFully(channel, header(applied), 0);
+                    channel.force(false);
+                    // Все записи до обрезки уже в базе, ждать их сброса больше не нужно
+                    syncedRecords = appendedRecords;
+                    lock.notifyAll();
+                    return;
+                } else if (applied - HEADER_BYTES >= compactionBytes) {
+                    compact();
+                    return;
+                }
+                writeFully(channel, header(applied), 0);
+            } catch (IOException e) {
+                log.warn("Не удалось отметить применённые команды в журнале лайков: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Физический размер файла журнала
+    long size() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    // Вызывается под lock. Неприменённых записей не больше ёмкости очереди, поэтому хвост читается целиком
+    private void compact() throws IOException {
+        while (syncing) {
+            waitForSync();
+        }
+        ByteBuffer tail = ByteBuffer.allocate(Math.toIntExact(written - applied));
+        readFully(channel, tail, applied);
+        tail.flip();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel compacted = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(compacted, header(HEADER_BYTES), 0);
+            writeFully(compacted, tail, HEADER_BYTES);
+            compacted.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        written = HEADER_BYTES + written - applied;
+        applied = HEADER_BYTES;
+        // Новый файл уже сброшен на диск вместе со всеми записанными командами
+        syncedRecords = appendedRecords;
+        lock.notifyAll();
+    }
+
+    private static ByteBuffer header(long applied) {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(applied).flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Журнал лайков обрывается на смещении " + position);
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void waitForSync() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание записи журнала лайков прервано", e);
+        }
+    }
+}
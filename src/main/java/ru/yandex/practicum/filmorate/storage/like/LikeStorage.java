@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
+import java.util.List;
 import java.util.Set;
 
 public interface LikeStorage {
@@ -7,6 +8,8 @@ public interface LikeStorage {
 
     void removeLike(Long filmId, Long userId);
 
+    List<LikeCommand> applyLikes(List<LikeCommand> commands);
+
     int getLikesCount(Long filmId);
 
     Set<Long> getCommonLikedFilms(Long userId1, Long userId2);
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Лайки пользователей в виде отсортированных массивов id фильмов.
+ * Общие фильмы двух пользователей находятся слиянием двух массивов без обращения к базе.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserLikesIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, long[]> likesByUser = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        String sql = "SELECT user_id, film_id FROM film_likes ORDER BY user_id, film_id";
+
+        Map<Long, long[]> loaded = new HashMap<>();
+        List<Long> filmIds = new ArrayList<>();
+        long[] currentUser = {-1};
+        jdbcTemplate.query(sql, rs -> {
+            long userId = rs.getLong("user_id");
+            if (userId != currentUser[0] && !filmIds.isEmpty()) {
+                loaded.put(currentUser[0], toArray(filmIds));
+                filmIds.clear();
+            }
+            currentUser[0] = userId;
+            filmIds.add(rs.getLong("film_id"));
+        });
+        if (!filmIds.isEmpty()) {
+            loaded.put(currentUser[0], toArray(filmIds));
+        }
+
+        lock.writeLock().lock();
+        try {
+            likesByUser.clear();
+            likesByUser.putAll(loaded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс лайков построен для {} пользователей", loaded.size());
+    }
+
+    /**
+     * Возвращает id фильмов, которые понравились обоим пользователям, по возрастанию.
+     */
+    public List<Long> getCommonFilmIds(Long userId, Long otherUserId) {
+        lock.readLock().lock();
+        try {
+            return intersect(likesByUser.getOrDefault(userId, EMPTY), likesByUser.getOrDefault(otherUserId, EMPTY));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает отсортированные id фильмов, которые понравились пользователю.
+     * Массивы не изменяются после публикации (при записи создаётся новый), поэтому их можно читать без копирования.
+     */
+    public long[] getFilmIds(Long userId) {
+        lock.readLock().lock();
+        try {
+            return likesByUser.getOrDefault(userId, EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onLikeChange(LikeChange change) {
+        lock.writeLock().lock();
+        try {
+            long[] filmIds = likesByUser.getOrDefault(change.userId(), EMPTY);
+            long[] updated = change.added() ? insert(filmIds, change.filmId()) : remove(filmIds, change.filmId());
+            if (updated.length == 0) {
+                likesByUser.remove(change.userId());
+            } else if (updated != filmIds) {
+                likesByUser.put(change.userId(), updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        if (change.type() != FilmChange.Type.DELETED) {
+            return;
+        }
+        // Лайки удалённого фильма удаляются без отдельных событий, поэтому чистим все массивы
+        lock.writeLock().lock();
+        try {
+            likesByUser.replaceAll((userId, filmIds) -> remove(filmIds, change.filmId()));
+            likesByUser.values().removeIf(filmIds -> filmIds.length == 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<Long> intersect(long[] first, long[] second) {
+        List<Long> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result.add(first[i]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private static long[] insert(long[] filmIds, long filmId) {
+        int position = Arrays.binarySearch(filmIds, filmId);
+        if (position >= 0) {
+            return filmIds;
+        }
+        position = -position - 1;
+        long[] result = new long[filmIds.length + 1];
+        System.arraycopy(filmIds, 0, result, 0, position);
+        result[position] = filmId;
+        System.arraycopy(filmIds, position, result, position + 1, filmIds.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] filmIds, long filmId) {
+        int position = Arrays.binarySearch(filmIds, filmId);
+        if (position < 0) {
+            return filmIds;
+        }
+        long[] result = new long[filmIds.length - 1];
+        System.arraycopy(filmIds, 0, result, 0, position);
+        System.arraycopy(filmIds, position + 1, result, position, filmIds.length - position - 1);
+        return result;
+    }
+
+    private static long[] toArray(List<Long> values) {
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Обученная модель ALS, отображённая в память из файла {@link AlsTrainer}.
+ * Оценка фильма для пользователя - скалярное произведение их векторов, база при подборе не используется.
+ * Формат файла: MAGIC, число факторов, число пользователей и фильмов, id пользователей, id фильмов,
+ * затем векторы пользователей и векторы фильмов (float, big-endian). Смещения в файле 64-битные, а векторы
+ * отображаются кусками по {@link #ROWS_PER_CHUNK} строк, так как одно отображение ограничено 2 ГБ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlsModel {
+    static final int MAGIC = 0x414C5331;
+    static final int ROWS_PER_CHUNK = 1 << 20;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int ROW_BYTES = AlsTrainer.FACTORS * Float.BYTES;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private final UserLikesIndex userLikesIndex;
+
+    private volatile Mapped mapped;
+
+    public void load(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            if (header.position() < HEADER_BYTES || header.getInt(0) != MAGIC
+                    || header.getInt(4) != AlsTrainer.FACTORS) {
+                log.warn("Файл {} не является моделью ALS текущего формата", path);
+                return;
+            }
+            int users = header.getInt(8);
+            int films = header.getInt(12);
+            long filmIdsOffset = HEADER_BYTES + (long) users * Long.BYTES;
+            long userFactorsOffset = filmIdsOffset + (long) films * Long.BYTES;
+            long filmFactorsOffset = userFactorsOffset + (long) users * ROW_BYTES;
+            if (users < 0 || films < 0 || channel.size() != filmFactorsOffset + (long) films * ROW_BYTES) {
+                log.warn("Размер файла модели ALS {} не соответствует заголовку", path);
+                return;
+            }
+            long[] userIds = readLongs(channel, HEADER_BYTES, users);
+            Map<Long, Integer> userRows = new HashMap<>(users * 2);
+            for (int row = 0; row < users; row++) {
+                userRows.put(userIds[row], row);
+            }
+            long[] filmIds = readLongs(channel, filmIdsOffset, films);
+            mapped = new Mapped(userRows, filmIds, FactorRows.map(channel, userFactorsOffset, users),
+                    FactorRows.map(channel, filmFactorsOffset, films));
+        } catch (IOException e) {
+            log.warn("Не удалось отобразить модель ALS из файла {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Возвращает до limit фильмов с наибольшей оценкой модели, которые пользователь ещё не лайкал.
+     * Если модель не обучена или пользователь появился после обучения, возвращает пустой список.
+     */
+    public List<Long> recommend(Long userId, int limit) {
+        Mapped model = mapped;
+        Integer userRow = model != null ? model.userRows().get(userId) : null;
+        if (userRow == null) {
+            return Collections.emptyList();
+        }
+        float[] user = model.userFactors().row(userRow);
+        long[] liked = userLikesIndex.getFilmIds(userId);
+
+        PriorityQueue<Scored> best = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+        long[] filmIds = model.filmIds();
+        for (int row = 0; row < filmIds.length; row++) {
+            if (Arrays.binarySearch(liked, filmIds[row]) >= 0) {
+                continue;
+            }
+            best.add(new Scored(filmIds[row], model.filmFactors().dot(row, user)));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Scored> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble(Scored::score).reversed());
+        List<Long> result = new ArrayList<>(ranked.size());
+        ranked.forEach(scored -> result.add(scored.filmId()));
+        return result;
+    }
+
+    private static long[] readLongs(FileChannel channel, long offset, int count) throws IOException {
+        long[] values = new long[count];
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        long position = offset;
+        int read = 0;
+        while (read < count) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), (long) (count - read) * Long.BYTES));
+            while (buffer.hasRemaining()) {
+                int bytes = channel.read(buffer, position);
+                if (bytes < 0) {
+                    throw new IOException("Файл модели обрывается на смещении " + position);
+                }
+                position += bytes;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= Long.BYTES) {
+                values[read++] = buffer.getLong();
+            }
+        }
+        return values;
+    }
+
+    private record Mapped(Map<Long, Integer> userRows, long[] filmIds,
+                          FactorRows userFactors, FactorRows filmFactors) {
+    }
+
+    /**
+     * Векторы, отображённые в память кусками по {@link #ROWS_PER_CHUNK} строк.
+     */
+    private record FactorRows(FloatBuffer[] chunks) {
+
+        static FactorRows map(FileChannel channel, long offset, int rows) throws IOException {
+            FloatBuffer[] chunks = new FloatBuffer[(rows + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                int chunkRows = Math.min(ROWS_PER_CHUNK, rows - chunk * ROWS_PER_CHUNK);
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        offset + (long) chunk * ROWS_PER_CHUNK * ROW_BYTES, (long) chunkRows * ROW_BYTES)
+                        .asFloatBuffer();
+            }
+            return new FactorRows(chunks);
+        }
+
+        float[] row(int row) {
+            float[] values = new float[AlsTrainer.FACTORS];
+            chunks[row / ROWS_PER_CHUNK].get((row % ROWS_PER_CHUNK) * AlsTrainer.FACTORS, values);
+            return values;
+        }
+
+        double dot(int row, float[] vector) {
+            FloatBuffer chunk = chunks[row / ROWS_PER_CHUNK];
+            int offset = (row % ROWS_PER_CHUNK) * AlsTrainer.FACTORS;
+            double score = 0;
+            for (int i = 0; i < AlsTrainer.FACTORS; i++) {
+                score += vector[i] * chunk.get(offset + i);
+            }
+            return score;
+        }
+    }
+
+    private record Scored(Long filmId, double score) {
+    }
+}
@@ -0,0 +1,220 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Фоновое обучение модели матричной факторизации по неявным откликам (implicit ALS, Hu-Koren-Volinsky).
+ * Лайк - положительный отклик с уверенностью 1 + ALPHA, отсутствие лайка - нулевой с уверенностью 1.
+ * Векторы пользователей и фильмов попеременно пересчитываются параллельно на всех ядрах,
+ * результат записывается в бинарный файл модели, который {@link AlsModel} отображает в память.
+ * Обучение включается заданием filmorate.recommendations.als-model-file; без файла режим ALS обслуживает item-item.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlsTrainer {
+    static final int FACTORS = 32;
+    private static final int ITERATIONS = 10;
+    private static final double ALPHA = 40.0;
+    private static final double LAMBDA = 0.1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AlsModel model;
+
+    @Value("${filmorate.recommendations.als-model-file:}")
+    private String file;
+
+    @Scheduled(initialDelayString = "${filmorate.recommendations.als-initial-delay-ms:0}",
+            fixedDelayString = "${filmorate.recommendations.als-interval-ms:600000}")
+    public void train() {
+        if (file.isBlank()) {
+            return;
+        }
+        Map<Long, Integer> userRows = new HashMap<>();
+        Map<Long, Integer> filmRows = new HashMap<>();
+        List<int[]> likes = new ArrayList<>();
+        jdbcTemplate.query("SELECT user_id, film_id FROM film_likes", rs -> {
+            int user = userRows.computeIfAbsent(rs.getLong("user_id"), k -> userRows.size());
+            int film = filmRows.computeIfAbsent(rs.getLong("film_id"), k -> filmRows.size());
+            likes.add(new int[]{user, film});
+        });
+        if (likes.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int[][] filmsByUser = group(likes, userRows.size(), 0);
+        int[][] usersByFilm = group(likes, filmRows.size(), 1);
+        float[] userFactors = new float[userRows.size() * FACTORS];
+        float[] filmFactors = randomFactors(filmRows.size());
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            solve(userFactors, filmFactors, filmsByUser);
+            solve(filmFactors, userFactors, usersByFilm);
+        }
+
+        try {
+            write(Path.of(file), ids(userRows), ids(filmRows), userFactors, filmFactors);
+        } catch (IOException e) {
+            log.warn("Не удалось записать модель ALS в файл {}: {}", file, e.getMessage());
+            return;
+        }
+        model.load(Path.of(file));
+        log.info("Модель ALS обучена на {} лайках ({} пользователей, {} фильмов) за {} мс",
+                likes.size(), userRows.size(), filmRows.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Один полушаг ALS: при фиксированных векторах other пересчитывает каждый вектор target решением
+     * (OᵀO + ALPHA * Σ o_i o_iᵀ + LAMBDA * I) x = (1 + ALPHA) * Σ o_i по его положительным откликам.
+     */
+    private static void solve(float[] target, float[] other, int[][] positives) {
+        double[] gram = gram(other);
+        IntStream.range(0, positives.length).parallel().forEach(row -> {
+            double[] a = gram.clone();
+            double[] b = new double[FACTORS];
+            for (int column : positives[row]) {
+                int offset = column * FACTORS;
+                for (int i = 0; i < FACTORS; i++) {
+                    double value = other[offset + i];
+                    b[i] += (1 + ALPHA) * value;
+                    for (int j = 0; j < FACTORS; j++) {
+                        a[i * FACTORS + j] += ALPHA * value * other[offset + j];
+                    }
+                }
+            }
+            for (int i = 0; i < FACTORS; i++) {
+                a[i * FACTORS + i] += LAMBDA;
+            }
+            double[] x = choleskySolve(a, b);
+            for (int i = 0; i < FACTORS; i++) {
+                target[row * FACTORS + i] = (float) x[i];
+            }
+        });
+    }
+
+    // OᵀO общая для всех строк полушага, поэтому считается один раз
+    private static double[] gram(float[] factors) {
+        int rows = factors.length / FACTORS;
+        return IntStream.range(0, rows).parallel()
+                .mapToObj(row -> {
+                    double[] local = new double[FACTORS * FACTORS];
+                    int offset = row * FACTORS;
+                    for (int i = 0; i < FACTORS; i++) {
+                        for (int j = 0; j < FACTORS; j++) {
+                            local[i * FACTORS + j] = (double) factors[offset + i] * factors[offset + j];
+                        }
+                    }
+                    return local;
+                })
+                .reduce(new double[FACTORS * FACTORS], (left, right) -> {
+                    double[] sum = left.clone();
+                    for (int i = 0; i < sum.length; i++) {
+                        sum[i] += right[i];
+                    }
+                    return sum;
+                });
+    }
+
+    // Матрица системы симметричная положительно определённая, поэтому решаем через разложение Холецкого
+    private static double[] choleskySolve(double[] a, double[] b) {
+        int n = FACTORS;
+        double[] l = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * n + k] * l[j * n + k];
+                }
+                l[i * n + j] = i == j ? Math.sqrt(Math.max(sum, 1e-12)) : sum / l[j * n + j];
+            }
+        }
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= l[i * n + k] * y[k];
+            }
+            y[i] = sum / l[i * n + i];
+        }
+        double[] x = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = y[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= l[k * n + i] * x[k];
+            }
+            x[i] = sum / l[i * n + i];
+        }
+        return x;
+    }
+
+    private static int[][] group(List<int[]> likes, int size, int keyIndex) {
+        int[] counts = new int[size];
+        for (int[] like : likes) {
+            counts[like[keyIndex]]++;
+        }
+        int[][] grouped = new int[size][];
+        for (int i = 0; i < size; i++) {
+            grouped[i] = new int[counts[i]];
+        }
+        int[] filled = new int[size];
+        for (int[] like : likes) {
+            int key = like[keyIndex];
+            grouped[key][filled[key]++] = like[1 - keyIndex];
+        }
+        return grouped;
+    }
+
+    private static float[] randomFactors(int rows) {
+        Random random = new Random(42);
+        float[] factors = new float[rows * FACTORS];
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = (float) (random.nextGaussian() * 0.01);
+        }
+        return factors;
+    }
+
+    private static long[] ids(Map<Long, Integer> rows) {
+        long[] ids = new long[rows.size()];
+        rows.forEach((id, row) -> ids[row] = id);
+        return ids;
+    }
+
+    private static void write(Path target, long[] userIds, long[] filmIds,
+                              float[] userFactors, float[] filmFactors) throws IOException {
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "als", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(AlsModel.MAGIC);
+            out.writeInt(FACTORS);
+            out.writeInt(userIds.length);
+            out.writeInt(filmIds.length);
+            for (long id : userIds) {
+                out.writeLong(id);
+            }
+            for (long id : filmIds) {
+                out.writeLong(id);
+            }
+            for (float value : userFactors) {
+                out.writeFloat(value);
+            }
+            for (float value : filmFactors) {
+                out.writeFloat(value);
+            }
+        }
+        // Файл заменяется атомарно: уже отображённая в память старая версия остаётся валидной
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
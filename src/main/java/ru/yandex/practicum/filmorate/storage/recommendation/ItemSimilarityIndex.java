@@ -0,0 +1,306 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LongDoubleMap;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Item-item коллаборативная фильтрация.
+ * Для каждого фильма хранится ограниченная таблица из не более {@link #CANDIDATES} фильмов с наибольшим числом
+ * совместных лайков (алгоритм Space-Saving: новый фильм вытесняет фильм с наименьшим счётчиком и наследует его).
+ * Лайк пользователя сопоставляется не более чем с {@link #MAX_PAIRED_LIKES} его фильмами (равномерная выборка),
+ * поэтому и память на фильм, и работа на один лайк ограничены, а счётчики у активных пользователей приближённые.
+ * Сходство - косинусная мера co(i, j) / sqrt(n(i) * n(j)); из таблицы фильма по требованию строится
+ * и кешируется список из {@link #NEIGHBORS} самых похожих фильмов, лайк сбрасывает кеш только у затронутых фильмов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSimilarityIndex {
+    static final int NEIGHBORS = 50;
+    // Запас кандидатов: порядок по числу совместных лайков не совпадает с порядком по косинусной мере
+    static final int CANDIDATES = 4 * NEIGHBORS;
+    static final int MAX_PAIRED_LIKES = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserLikesIndex userLikesIndex;
+
+    private final Map<Long, CoLikeCounts> coLikes = new HashMap<>();
+    private final Map<Long, Integer> likeCounts = new HashMap<>();
+    private final Map<Long, List<Neighbor>> neighbors = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        String sql = "SELECT user_id, film_id FROM film_likes ORDER BY user_id";
+
+        Map<Long, CoLikeCounts> loadedCoLikes = new HashMap<>();
+        Map<Long, Integer> loadedCounts = new HashMap<>();
+        List<Long> userFilms = new ArrayList<>();
+        long[] currentUser = {-1};
+        // Лайки пользователя добавляются по очереди, как при обработке событий
+        jdbcTemplate.query(sql, rs -> {
+            long userId = rs.getLong("user_id");
+            if (userId != currentUser[0]) {
+                userFilms.clear();
+                currentUser[0] = userId;
+            }
+            long filmId = rs.getLong("film_id");
+            loadedCounts.merge(filmId, 1, Integer::sum);
+            forEachSampled(userFilms.size(), index -> {
+                long otherFilmId = userFilms.get(index);
+                loadedCoLikes.computeIfAbsent(filmId, k -> new CoLikeCounts(CANDIDATES)).increment(otherFilmId);
+                loadedCoLikes.computeIfAbsent(otherFilmId, k -> new CoLikeCounts(CANDIDATES)).increment(filmId);
+            });
+            userFilms.add(filmId);
+        });
+
+        lock.writeLock().lock();
+        try {
+            coLikes.clear();
+            likeCounts.clear();
+            neighbors.clear();
+            coLikes.putAll(loadedCoLikes);
+            likeCounts.putAll(loadedCounts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Таблицы совместных лайков построены для {} фильмов", loadedCounts.size());
+    }
+
+    /**
+     * Оценивает фильмы, которые пользователь ещё не лайкал, суммой сходства с понравившимися ему фильмами
+     * и возвращает до {@link RecommendationResult#RECOMMENDATIONS} id по убыванию оценки.
+     */
+    public List<Long> recommend(Long userId) {
+        long[] liked = userLikesIndex.getFilmIds(userId);
+        LongDoubleMap scores = new LongDoubleMap(256);
+        lock.readLock().lock();
+        try {
+            for (long filmId : liked) {
+                for (Neighbor neighbor : neighborsOf(filmId)) {
+                    if (Arrays.binarySearch(liked, neighbor.filmId()) < 0) {
+                        scores.add(neighbor.filmId(), neighbor.similarity());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.top(RecommendationResult.RECOMMENDATIONS);
+    }
+
+    @EventListener
+    public void onLikeChange(LikeChange change) {
+        // Порядок обработки события индексами не определён, поэтому сам фильм из лайков пользователя пропускаем
+        long[] liked = Arrays.stream(userLikesIndex.getFilmIds(change.userId()))
+                .filter(filmId -> filmId != change.filmId())
+                .toArray();
+        long filmId = change.filmId();
+        lock.writeLock().lock();
+        try {
+            // Изменилось n(filmId), значит и сходство фильма со всеми его соседями
+            invalidate(filmId);
+            likeCounts.merge(filmId, change.added() ? 1 : -1, Integer::sum);
+            if (likeCounts.get(filmId) <= 0) {
+                likeCounts.remove(filmId);
+            }
+            forEachSampled(liked.length, index -> {
+                long otherFilmId = liked[index];
+                neighbors.remove(otherFilmId);
+                adjustPair(filmId, otherFilmId, change.added());
+                adjustPair(otherFilmId, filmId, change.added());
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        if (change.type() != FilmChange.Type.DELETED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            invalidate(change.filmId());
+            CoLikeCounts related = coLikes.remove(change.filmId());
+            if (related != null) {
+                // Таблицы несимметричны после вытеснений: оставшиеся у других фильмов записи
+                // не попадают в соседи, так как n(filmId) уже ноль, и со временем вытесняются
+                related.forEach((otherFilmId, together) -> {
+                    CoLikeCounts otherRelated = coLikes.get(otherFilmId);
+                    if (otherRelated != null) {
+                        otherRelated.remove(change.filmId());
+                        if (otherRelated.size() == 0) {
+                            coLikes.remove(otherFilmId);
+                        }
+                    }
+                });
+            }
+            likeCounts.remove(change.filmId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Neighbor> neighborsOf(Long filmId) {
+        return neighbors.computeIfAbsent(filmId, this::computeNeighbors);
+    }
+
+    private List<Neighbor> computeNeighbors(Long filmId) {
+        CoLikeCounts related = coLikes.get(filmId);
+        int filmLikes = likeCounts.getOrDefault(filmId, 0);
+        if (related == null || filmLikes == 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Neighbor> heap = new PriorityQueue<>(Comparator.comparingDouble(Neighbor::similarity));
+        related.forEach((otherFilmId, together) -> {
+            int otherLikes = likeCounts.getOrDefault(otherFilmId, 0);
+            if (otherLikes == 0) {
+                return;
+            }
+            heap.add(new Neighbor(otherFilmId, together / Math.sqrt((double) filmLikes * otherLikes)));
+            if (heap.size() > NEIGHBORS) {
+                heap.poll();
+            }
+        });
+        List<Neighbor> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(Neighbor::similarity).reversed());
+        return result;
+    }
+
+    private void invalidate(Long filmId) {
+        neighbors.remove(filmId);
+        CoLikeCounts related = coLikes.get(filmId);
+        if (related != null) {
+            related.forEach((otherFilmId, together) -> neighbors.remove(otherFilmId));
+        }
+    }
+
+    private void adjustPair(long filmId, long otherFilmId, boolean added) {
+        if (added) {
+            coLikes.computeIfAbsent(filmId, k -> new CoLikeCounts(CANDIDATES)).increment(otherFilmId);
+            return;
+        }
+        CoLikeCounts related = coLikes.get(filmId);
+        if (related != null) {
+            related.decrement(otherFilmId);
+            if (related.size() == 0) {
+                coLikes.remove(filmId);
+            }
+        }
+    }
+
+    // Передаёт action индексы равномерной выборки из не более MAX_PAIRED_LIKES элементов списка размера size
+    private static void forEachSampled(int size, IntConsumer action) {
+        int sample = Math.min(size, MAX_PAIRED_LIKES);
+        for (int i = 0; i < sample; i++) {
+            action.accept((int) ((long) i * size / sample));
+        }
+    }
+
+    private record Neighbor(Long filmId, double similarity) {
+    }
+
+    /**
+     * Счётчики совместных лайков одного фильма: отсортированные id фильмов и счётчики в параллельных массивах,
+     * не больше capacity записей.
+     */
+    static final class CoLikeCounts {
+        private final int capacity;
+        private long[] films = new long[8];
+        private int[] counts = new int[8];
+        private int size;
+
+        CoLikeCounts(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void increment(long filmId) {
+            int index = Arrays.binarySearch(films, 0, size, filmId);
+            if (index >= 0) {
+                counts[index]++;
+                return;
+            }
+            int count = 1;
+            if (size == capacity) {
+                int min = 0;
+                for (int i = 1; i < size; i++) {
+                    if (counts[i] < counts[min]) {
+                        min = i;
+                    }
+                }
+                count += counts[min];
+                removeAt(min);
+                index = Arrays.binarySearch(films, 0, size, filmId);
+            }
+            insertAt(-index - 1, filmId, count);
+        }
+
+        void decrement(long filmId) {
+            int index = Arrays.binarySearch(films, 0, size, filmId);
+            if (index >= 0 && --counts[index] <= 0) {
+                removeAt(index);
+            }
+        }
+
+        void remove(long filmId) {
+            int index = Arrays.binarySearch(films, 0, size, filmId);
+            if (index >= 0) {
+                removeAt(index);
+            }
+        }
+
+        int get(long filmId) {
+            int index = Arrays.binarySearch(films, 0, size, filmId);
+            return index >= 0 ? counts[index] : 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(CountConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(films[i], counts[i]);
+            }
+        }
+
+        private void insertAt(int index, long filmId, int count) {
+            if (size == films.length) {
+                films = Arrays.copyOf(films, Math.min(capacity, size * 2));
+                counts = Arrays.copyOf(counts, films.length);
+            }
+            System.arraycopy(films, index, films, index + 1, size - index);
+            System.arraycopy(counts, index, counts, index + 1, size - index);
+            films[index] = filmId;
+            counts[index] = count;
+            size++;
+        }
+
+        private void removeAt(int index) {
+            System.arraycopy(films, index + 1, films, index, size - index - 1);
+            System.arraycopy(counts, index + 1, counts, index, size - index - 1);
+            size--;
+        }
+    }
+
+    @FunctionalInterface
+    interface CountConsumer {
+        void accept(long filmId, int count);
+    }
+}
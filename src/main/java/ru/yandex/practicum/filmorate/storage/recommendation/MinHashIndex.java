@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MinHash-сигнатуры лайков пользователей, разбитые на LSH-корзины.
+ * Пользователи с похожими множествами лайков с высокой вероятностью попадают хотя бы в одну общую корзину,
+ * поэтому кандидаты в соседи находятся без перебора всех пользователей. Корзина строится по двум значениям
+ * сигнатуры: при типичной для лайков мере Жаккара 0.2 пара попадает в общую корзину с вероятностью около 0.7.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MinHashIndex {
+    static final int HASHES = 64;
+    static final int BANDS = 32;
+    private static final int ROWS = HASHES / BANDS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserLikesIndex userLikesIndex;
+
+    private final Map<Long, long[]> signatures = new HashMap<>();
+    private final Map<Long, Set<Long>> buckets = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, long[]> computed = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, film_id FROM film_likes", rs -> {
+            long[] signature = computed.computeIfAbsent(rs.getLong("user_id"), k -> emptySignature());
+            long filmId = rs.getLong("film_id");
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], hash(filmId, i));
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            signatures.clear();
+            buckets.clear();
+            computed.forEach(this::place);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("MinHash-сигнатуры посчитаны для {} пользователей", computed.size());
+    }
+
+    /**
+     * Возвращает пользователей, попавших хотя бы в одну LSH-корзину вместе с данным пользователем.
+     */
+    public Set<Long> getCandidates(Long userId) {
+        lock.readLock().lock();
+        try {
+            long[] signature = signatures.get(userId);
+            if (signature == null) {
+                return Collections.emptySet();
+            }
+            Set<Long> candidates = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                candidates.addAll(buckets.getOrDefault(bucketKey(signature, band), Collections.emptySet()));
+            }
+            candidates.remove(userId);
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onLikeChange(LikeChange change) {
+        lock.writeLock().lock();
+        try {
+            long[] current = unplace(change.userId());
+            long[] updated = change.added()
+                    ? withFilm(current, change.filmId())
+                    : withoutFilm(change.userId(), change.filmId());
+            if (updated != null) {
+                place(change.userId(), updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        if (change.type() != FilmChange.Type.DELETED) {
+            return;
+        }
+        long filmId = change.filmId();
+        lock.writeLock().lock();
+        try {
+            // Сигнатура зависит от фильма, только если он дал минимум хотя бы одной хеш-функции
+            List<Long> affected = new ArrayList<>();
+            signatures.forEach((userId, signature) -> {
+                for (int i = 0; i < HASHES; i++) {
+                    if (signature[i] == hash(filmId, i)) {
+                        affected.add(userId);
+                        return;
+                    }
+                }
+            });
+            for (Long userId : affected) {
+                unplace(userId);
+                long[] updated = withoutFilm(userId, filmId);
+                if (updated != null) {
+                    place(userId, updated);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long[] withFilm(long[] signature, long filmId) {
+        long[] updated = signature != null ? signature.clone() : emptySignature();
+        for (int i = 0; i < HASHES; i++) {
+            updated[i] = Math.min(updated[i], hash(filmId, i));
+        }
+        return updated;
+    }
+
+    // Минимум мог дать удалённый фильм, поэтому сигнатура пересчитывается по оставшимся лайкам;
+    // порядок обработки события индексами не определён, так что сам фильм пропускаем явно
+    private long[] withoutFilm(Long userId, long removedFilmId) {
+        long[] updated = null;
+        for (long filmId : userLikesIndex.getFilmIds(userId)) {
+            if (filmId != removedFilmId) {
+                updated = withFilm(updated, filmId);
+            }
+        }
+        return updated;
+    }
+
+    private void place(Long userId, long[] signature) {
+        signatures.put(userId, signature);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bucketKey(signature, band), k -> new HashSet<>()).add(userId);
+        }
+    }
+
+    private long[] unplace(Long userId) {
+        long[] signature = signatures.remove(userId);
+        if (signature == null) {
+            return null;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bucketKey(signature, band);
+            Set<Long> users = buckets.get(key);
+            if (users != null) {
+                users.remove(userId);
+                if (users.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long bucketKey(long[] signature, int band) {
+        long key = mix(band);
+        for (int row = 0; row < ROWS; row++) {
+            key = mix(key ^ signature[band * ROWS + row]);
+        }
+        return key;
+    }
+
+    private static long[] emptySignature() {
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        return signature;
+    }
+
+    // Семейство хеш-функций задаётся фиксированными сидами
+    private static long hash(long filmId, int function) {
+        return mix(filmId * 0x9E3779B97F4A7C15L + function) & Long.MAX_VALUE;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
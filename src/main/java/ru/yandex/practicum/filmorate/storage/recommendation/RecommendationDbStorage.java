@@ -1,38 +1,168 @@
 package ru.yandex.practicum.filmorate.storage.recommendation;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
+import ru.yandex.practicum.filmorate.storage.change.FriendshipChange;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+import ru.yandex.practicum.filmorate.storage.change.UserChange;
 
-import java.util.ArrayList;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Хранилище готовых рекомендаций: таблица user_recommendations и кеш в памяти.
+ * Рекомендации отдаются из хранилища, пока они не старше max-age и лайки пользователя не менялись.
+ * Фоновая задача заранее пересчитывает закешированные рекомендации, у которых изменились лайки,
+ * а записи старше max-age удаляет из кеша: в нём остаются только недавно запрошенные рекомендации.
+ * Неполные рекомендации (расчёт упёрся в бюджет времени) не кешируются и не сохраняются.
+ */
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class RecommendationDbStorage implements RecommendationStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ItemSimilarityIndex itemSimilarityIndex;
+    private final UserSimilarityIndex userSimilarityIndex;
+    private final AlsModel alsModel;
+    private final SocialRecommender socialRecommender;
+
+    private final Map<Key, Stored> cache = new ConcurrentHashMap<>();
+    private final Set<Key> dirty = ConcurrentHashMap.newKeySet();
+
+    @Value("${filmorate.recommendations.max-age-ms:300000}")
+    private long maxAgeMs;
 
     @Override
-    public List<Long> getRecommendation(Long userId) {
-        String sql = "SELECT film_id FROM film_likes " +
-                "WHERE user_id = ? AND film_id NOT IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
-        Long userWithSameTasteId = getUserWithSameTasteId(userId);
-        List<Long> films = new ArrayList<>();
-        films.addAll(jdbcTemplate.queryForList(sql, Long.class, userWithSameTasteId, userId));
-        return films;
-    }
-
-    private Long getUserWithSameTasteId(Long userId) {
-        String sql = "SELECT t2.user_id " +
-                "FROM film_likes AS t1 " +
-                "LEFT JOIN film_likes AS t2 ON t1.film_id = t2.film_id " +
-                "WHERE t1.user_id = ? and t2.user_id <> t1.user_id " +
-                "GROUP BY t2.user_id " +
-                "ORDER BY COUNT(*) DESC LIMIT 1";
-        try {
-            return jdbcTemplate.queryForObject(sql, Long.class, userId);
-        } catch (RuntimeException e) {
-            return null;
+    public List<Long> getRecommendation(Long userId, RecommendationMode mode) {
+        Key key = new Key(userId, mode);
+        if (!dirty.contains(key)) {
+            Stored stored = cache.computeIfAbsent(key, this::load);
+            if (stored != null && isFresh(stored)) {
+                return stored.filmIds();
+            }
+        }
+        return refresh(key).filmIds();
+    }
+
+    @EventListener
+    public void onLikeChange(LikeChange change) {
+        for (RecommendationMode mode : RecommendationMode.values()) {
+            dirty.add(new Key(change.userId(), mode));
+        }
+    }
+
+    // Лайки друзей учитываются при плановом обновлении по max-age, здесь отслеживается только свой список друзей
+    @EventListener
+    public void onFriendshipChange(FriendshipChange change) {
+        dirty.add(new Key(change.userId(), RecommendationMode.FRIENDS));
+    }
+
+    @EventListener
+    public void onUserChange(UserChange change) {
+        if (change.type() != UserChange.Type.DELETED) {
+            return;
+        }
+        for (RecommendationMode mode : RecommendationMode.values()) {
+            Key key = new Key(change.userId(), mode);
+            cache.remove(key);
+            dirty.remove(key);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.refresh-interval-ms:60000}")
+    public void refreshStale() {
+        cache.entrySet().removeIf(entry -> !isFresh(entry.getValue()));
+        // Помеченные пользователи вне кеша пересчитываются при следующем запросе
+        List<Key> stale = dirty.stream()
+                .filter(cache::containsKey)
+                .toList();
+        if (stale.isEmpty()) {
+            return;
         }
+        stale.forEach(this::refresh);
+        log.info("Пересчитаны рекомендации для {} пользователей", stale.size());
+    }
+
+    int getCachedCount() {
+        return cache.size();
+    }
+
+    private Stored refresh(Key key) {
+        // Флаг снимается до расчёта: лайк во время расчёта снова пометит пользователя
+        dirty.remove(key);
+        RecommendationResult result = switch (key.mode()) {
+            case ITEMS -> RecommendationResult.complete(itemSimilarityIndex.recommend(key.userId()));
+            case USERS -> RecommendationResult.complete(userSimilarityIndex.recommend(key.userId()));
+            case ALS -> RecommendationResult.complete(alsRecommendation(key.userId()));
+            case FRIENDS -> socialRecommender.recommend(key.userId());
+        };
+        Stored stored = new Stored(List.copyOf(result.filmIds()), Instant.now());
+        if (!result.complete()) {
+            // Следующий запрос посчитает заново, а не возьмёт старую запись из кеша или таблицы
+            cache.remove(key);
+            dirty.add(key);
+            return stored;
+        }
+        cache.put(key, stored);
+        save(key, stored);
+        return stored;
+    }
+
+    // Пользователей, появившихся после обучения модели, обслуживает item-item
+    private List<Long> alsRecommendation(Long userId) {
+        List<Long> filmIds = alsModel.recommend(userId, RecommendationResult.RECOMMENDATIONS);
+        return filmIds.isEmpty() ? itemSimilarityIndex.recommend(userId) : filmIds;
+    }
+
+    private Stored load(Key key) {
+        String sql = "SELECT film_ids, computed_at FROM user_recommendations WHERE user_id = ? AND rec_mode = ?";
+        List<Stored> rows = jdbcTemplate.query(sql, (rs, rowNum) -> new Stored(
+                List.copyOf(FilmRowMapper.toLongSet(rs.getArray("film_ids"))),
+                rs.getTimestamp("computed_at").toInstant()), key.userId(), key.mode().name());
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void save(Key key, Stored stored) {
+        // Пользователь мог быть удалён во время расчёта, тогда строка не вставляется
+        String sql = "MERGE INTO user_recommendations r USING (SELECT id FROM users WHERE id = ?) u " +
+                "ON r.user_id = u.id AND r.rec_mode = ? " +
+                "WHEN MATCHED THEN UPDATE SET film_ids = ?, computed_at = ? " +
+                "WHEN NOT MATCHED THEN INSERT (user_id, rec_mode, film_ids, computed_at) VALUES (u.id, ?, ?, ?)";
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            Array filmIds = connection.createArrayOf("BIGINT", stored.filmIds().toArray());
+            Timestamp computedAt = Timestamp.from(stored.computedAt());
+            ps.setLong(1, key.userId());
+            ps.setString(2, key.mode().name());
+            ps.setArray(3, filmIds);
+            ps.setTimestamp(4, computedAt);
+            ps.setString(5, key.mode().name());
+            ps.setArray(6, filmIds);
+            ps.setTimestamp(7, computedAt);
+            return ps;
+        });
+    }
+
+    private boolean isFresh(Stored stored) {
+        return stored.computedAt().plusMillis(maxAgeMs).isAfter(Instant.now());
+    }
+
+    private record Key(Long userId, RecommendationMode mode) {
+    }
+
+    private record Stored(List<Long> filmIds, Instant computedAt) {
     }
 }
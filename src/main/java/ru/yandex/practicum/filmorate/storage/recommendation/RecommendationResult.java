@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import java.util.List;
+
+/**
+ * Рассчитанные рекомендации и признак того, что расчёт не был прерван бюджетом времени.
+ * Во всех режимах возвращается не больше {@link #RECOMMENDATIONS} фильмов.
+ */
+public record RecommendationResult(List<Long> filmIds, boolean complete) {
+    static final int RECOMMENDATIONS = 50;
+
+    public static RecommendationResult complete(List<Long> filmIds) {
+        return new RecommendationResult(filmIds, true);
+    }
+}
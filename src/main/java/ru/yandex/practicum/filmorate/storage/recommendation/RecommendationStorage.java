@@ -1,7 +1,9 @@
 package ru.yandex.practicum.filmorate.storage.recommendation;
 
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
+
 import java.util.List;
 
 public interface RecommendationStorage {
-    List<Long> getRecommendation(Long userId);
+    List<Long> getRecommendation(Long userId, RecommendationMode mode);
 }
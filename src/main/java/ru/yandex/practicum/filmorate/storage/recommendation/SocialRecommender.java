@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LongDoubleMap;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Рекомендации от друзей: вектор весов пользователей (друг - 1, друг друга - доля FRIEND_OF_FRIEND_WEIGHT,
+ * поделённая на число друзей посредника) умножается на разреженную матрицу лайков.
+ * Обе части считаются на примитивных массивах из {@link FriendshipGraph} и {@link UserLikesIndex}
+ * без запросов к базе. Обход ограничен числом рёбер второго уровня и бюджетом времени:
+ * при его исчерпании возвращается ранжирование по уже учтённым пользователям, начиная с прямых друзей.
+ */
+@Component
+@RequiredArgsConstructor
+public class SocialRecommender {
+    static final double FRIEND_OF_FRIEND_WEIGHT = 0.5;
+    static final int SECOND_HOP_EDGES_LIMIT = 200_000;
+    // Время проверяется не на каждой строке, а раз в столько строк
+    private static final int CLOCK_CHECK_INTERVAL = 256;
+
+    private final FriendshipGraph friendshipGraph;
+    private final UserLikesIndex userLikesIndex;
+
+    @Value("${filmorate.recommendations.social-budget-ms:50}")
+    private long budgetMs;
+
+    /**
+     * Возвращает до {@link RecommendationResult#RECOMMENDATIONS} фильмов, которые пользователь ещё не лайкал,
+     * по убыванию взвешенного числа лайков друзей и друзей друзей. Если бюджет времени исчерпан,
+     * результат помечается неполным.
+     */
+    public RecommendationResult recommend(Long userId) {
+        long deadline = System.nanoTime() + budgetMs * 1_000_000;
+        long[] friends = friendshipGraph.getFriendIds(userId);
+        if (friends.length == 0) {
+            return RecommendationResult.complete(Collections.emptyList());
+        }
+
+        boolean complete = true;
+        LongDoubleMap secondHop = new LongDoubleMap(friends.length * 4);
+        int edges = 0;
+        for (long friendId : friends) {
+            if (System.nanoTime() > deadline) {
+                complete = false;
+                break;
+            }
+            long[] friendsOfFriend = friendshipGraph.getFriendIds(friendId);
+            // Друг с большим числом друзей пропускается, остальные друзья ещё могут поместиться в лимит
+            if (edges + friendsOfFriend.length > SECOND_HOP_EDGES_LIMIT) {
+                continue;
+            }
+            edges += friendsOfFriend.length;
+            double share = FRIEND_OF_FRIEND_WEIGHT / friendsOfFriend.length;
+            for (long candidateId : friendsOfFriend) {
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    secondHop.add(candidateId, share);
+                }
+            }
+        }
+
+        long[] liked = userLikesIndex.getFilmIds(userId);
+        LongDoubleMap scores = new LongDoubleMap(256);
+        int rows = 0;
+        for (long friendId : friends) {
+            if (++rows % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                return new RecommendationResult(scores.top(RecommendationResult.RECOMMENDATIONS), false);
+            }
+            addLikes(scores, friendId, 1.0, liked);
+        }
+        for (int slot = 0; slot < secondHop.capacity(); slot++) {
+            if (secondHop.keyAt(slot) == 0) {
+                continue;
+            }
+            if (++rows % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                complete = false;
+                break;
+            }
+            addLikes(scores, secondHop.keyAt(slot), secondHop.valueAt(slot), liked);
+        }
+        return new RecommendationResult(scores.top(RecommendationResult.RECOMMENDATIONS), complete);
+    }
+
+    private void addLikes(LongDoubleMap scores, long userId, double weight, long[] excluded) {
+        for (long filmId : userLikesIndex.getFilmIds(userId)) {
+            if (Arrays.binarySearch(excluded, filmId) < 0) {
+                scores.add(filmId, weight);
+            }
+        }
+    }
+}
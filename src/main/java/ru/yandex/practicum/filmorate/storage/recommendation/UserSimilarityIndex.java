@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LongDoubleMap;
+import ru.yandex.practicum.filmorate.storage.change.FilmChange;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+
+import java.util.*;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Матрица лайков пользователь x фильм в виде сжатых битовых карт Roaring: по строке на пользователя
+ * и по столбцу на фильм. Кандидаты в соседи - только пользователи, лайкнувшие хотя бы один фильм из лайков
+ * целевого пользователя (а для очень популярных фильмов - кандидаты из {@link MinHashIndex});
+ * их мера Жаккара считается параллельно в ForkJoin-пуле.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSimilarityIndex {
+    static final int NEIGHBORS = 20;
+    // Выше этой оценки числа кандидатов точный перебор заменяется кандидатами из LSH
+    static final long EXACT_CANDIDATES_LIMIT = 50_000;
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MinHashIndex minHashIndex;
+
+    private final Map<Integer, RoaringBitmap> filmsByUser = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> usersByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, RoaringBitmap> loadedFilms = new HashMap<>();
+        Map<Integer, RoaringBitmap> loadedUsers = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, film_id FROM film_likes", rs -> {
+            int userId = toIndex(rs.getLong("user_id"));
+            int filmId = toIndex(rs.getLong("film_id"));
+            loadedFilms.computeIfAbsent(userId, k -> new RoaringBitmap()).add(filmId);
+            loadedUsers.computeIfAbsent(filmId, k -> new RoaringBitmap()).add(userId);
+        });
+        loadedFilms.values().forEach(RoaringBitmap::runOptimize);
+        loadedUsers.values().forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            usersByFilm.clear();
+            filmsByUser.putAll(loadedFilms);
+            usersByFilm.putAll(loadedUsers);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Матрица лайков построена для {} пользователей и {} фильмов", loadedFilms.size(), loadedUsers.size());
+    }
+
+    /**
+     * Смешивает лайки {@link #NEIGHBORS} ближайших соседей: оценка фильма - сумма сходства соседей,
+     * которым он понравился. Возвращает до {@link RecommendationResult#RECOMMENDATIONS} id фильмов,
+     * ещё не лайкнутых пользователем, по убыванию оценки.
+     */
+    public List<Long> recommend(Long userId) {
+        LongDoubleMap scores = new LongDoubleMap(256);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap liked = filmsByUser.get(toIndex(userId));
+            if (liked == null) {
+                return Collections.emptyList();
+            }
+            for (Neighbor neighbor : findNeighbors(toIndex(userId), liked)) {
+                RoaringBitmap candidates = RoaringBitmap.andNot(filmsByUser.get(neighbor.userId()), liked);
+                candidates.forEach((int filmId) -> scores.add(filmId, neighbor.similarity()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.top(RecommendationResult.RECOMMENDATIONS);
+    }
+
+    @EventListener
+    public void onLikeChange(LikeChange change) {
+        int userId = toIndex(change.userId());
+        int filmId = toIndex(change.filmId());
+        lock.writeLock().lock();
+        try {
+            if (change.added()) {
+                filmsByUser.computeIfAbsent(userId, k -> new RoaringBitmap()).add(filmId);
+                usersByFilm.computeIfAbsent(filmId, k -> new RoaringBitmap()).add(userId);
+            } else {
+                removeBit(filmsByUser, userId, filmId);
+                removeBit(usersByFilm, filmId, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onFilmChange(FilmChange change) {
+        if (change.type() != FilmChange.Type.DELETED) {
+            return;
+        }
+        int filmId = toIndex(change.filmId());
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap users = usersByFilm.remove(filmId);
+            if (users != null) {
+                users.forEach((int userId) -> removeBit(filmsByUser, userId, filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Neighbor> findNeighbors(int userId, RoaringBitmap liked) {
+        RoaringBitmap candidates = candidatesOf(userId, liked);
+        candidates.remove(userId);
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Neighbor> neighbors = new ArrayList<>(new NeighborSearch(liked, candidates.toArray(), 0,
+                candidates.getCardinality()).invoke());
+        neighbors.sort(Comparator.comparingDouble(Neighbor::similarity).reversed()
+                .thenComparingInt(Neighbor::userId));
+        return neighbors;
+    }
+
+    private RoaringBitmap candidatesOf(int userId, RoaringBitmap liked) {
+        long estimate = 0;
+        for (int filmId : liked) {
+            estimate += usersByFilm.get(filmId).getCardinality();
+        }
+        RoaringBitmap candidates = new RoaringBitmap();
+        if (estimate > EXACT_CANDIDATES_LIMIT) {
+            // Кандидаты из LSH могут уже не лайкать ничего; такие отбрасываются пересечением с матрицей
+            for (Long candidateId : minHashIndex.getCandidates((long) userId)) {
+                if (filmsByUser.containsKey(toIndex(candidateId))) {
+                    candidates.add(toIndex(candidateId));
+                }
+            }
+        } else {
+            liked.forEach((int filmId) -> candidates.or(usersByFilm.get(filmId)));
+        }
+        return candidates;
+    }
+
+    private static void removeBit(Map<Integer, RoaringBitmap> bitmaps, int key, int bit) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(bit);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    // Roaring хранит 32-битные значения; id в базе генерируются последовательно и в этот диапазон укладываются
+    private static int toIndex(Long id) {
+        return Math.toIntExact(id);
+    }
+
+    private record Neighbor(int userId, double similarity) {
+    }
+
+    /**
+     * Параллельный поиск ближайших соседей: диапазон кандидатов делится пополам, пока не станет меньше
+     * {@link #SEQUENTIAL_THRESHOLD}, каждая часть возвращает свои лучшие {@link #NEIGHBORS} кандидатов.
+     */
+    private class NeighborSearch extends RecursiveTask<PriorityQueue<Neighbor>> {
+        private final RoaringBitmap liked;
+        private final int[] candidates;
+        private final int from;
+        private final int to;
+
+        NeighborSearch(RoaringBitmap liked, int[] candidates, int from, int to) {
+            this.liked = liked;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PriorityQueue<Neighbor> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                PriorityQueue<Neighbor> best = new PriorityQueue<>(Comparator.comparingDouble(Neighbor::similarity));
+                for (int i = from; i < to; i++) {
+                    RoaringBitmap other = filmsByUser.get(candidates[i]);
+                    int together = RoaringBitmap.andCardinality(liked, other);
+                    if (together == 0) {
+                        continue;
+                    }
+                    int union = liked.getCardinality() + other.getCardinality() - together;
+                    offer(best, new Neighbor(candidates[i], (double) together / union));
+                }
+                return best;
+            }
+            int middle = (from + to) >>> 1;
+            NeighborSearch left = new NeighborSearch(liked, candidates, from, middle);
+            left.fork();
+            PriorityQueue<Neighbor> best = new NeighborSearch(liked, candidates, middle, to).compute();
+            left.join().forEach(neighbor -> offer(best, neighbor));
+            return best;
+        }
+
+        private void offer(PriorityQueue<Neighbor> best, Neighbor neighbor) {
+            best.add(neighbor);
+            if (best.size() > NEIGHBORS) {
+                best.poll();
+            }
+        }
+    }
+}
@@ -5,12 +5,21 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.JdbcStreams;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.change.LikeChange;
+import ru.yandex.practicum.filmorate.storage.change.UserChange;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -19,6 +28,10 @@ import java.util.stream.Collectors;
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
     private final UserRowMapper userRowMapper;
+    private final ChangePublisher changePublisher;
+    private final IdBatchLoader idBatchLoader;
+    private final ExistenceIndex existenceIndex;
+    private final FriendshipStorage friendshipStorage;
 
     @Override
     public List<User> getAll() {
@@ -28,6 +41,17 @@ public class UserDbStorage implements UserStorage {
         return users;
     }
 
+    @Override
+    public List<User> getPage(Long afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, userRowMapper, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<List<User>> consumer) {
+        JdbcStreams.forEachChunk(jdbcTemplate, "SELECT * FROM users ORDER BY id", userRowMapper, consumer);
+    }
+
     @Override
     public Optional<User> getById(Long id) {
         String sql = "SELECT * FROM users WHERE id = ?";
@@ -35,9 +59,18 @@ public class UserDbStorage implements UserStorage {
         if (users.isEmpty()) {
             return Optional.empty();
         }
-        User user = users.get(0);
-        loadFriendsForUser(user);
-        return Optional.of(user);
+        return Optional.of(users.get(0));
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        return existenceIndex.userExists(id);
+    }
+
+    @Override
+    public Set<Long> getExistingIds(Set<Long> ids) {
+        return new HashSet<>(idBatchLoader.query("SELECT id FROM users WHERE id = ANY(?)", ids,
+                (rs, rowNum) -> rs.getLong("id")));
     }
 
     @Override
@@ -56,6 +89,7 @@ public class UserDbStorage implements UserStorage {
         }, keyHolder);
 
         user.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        changePublisher.publish(UserChange.created(user.getId()));
         return user;
     }
 
@@ -72,41 +106,48 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
-        String sql = "DELETE FROM users WHERE id = ?";
-        jdbcTemplate.update(sql, id);
+        // Каскадное удаление не уменьшило бы likes_count и не обновило индексы
+        deleteUserById(id);
     }
 
     @Override
+    @Transactional
     public void deleteUserById(Long userId) {
-        String deleteFriendshipsSql = "DELETE FROM friendships WHERE user_id = ? OR friend_id = ?";
-        jdbcTemplate.update(deleteFriendshipsSql, userId, userId);
+        friendshipStorage.removeAllFriendshipsForUser(userId);
 
+        List<Long> likedFilmIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT film_id FROM film_likes WHERE user_id = ?", Long.class, userId);
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 " +
+                "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)", userId);
         String deleteLikesSql = "DELETE FROM film_likes WHERE user_id = ?";
         jdbcTemplate.update(deleteLikesSql, userId);
+        for (Long filmId : likedFilmIds) {
+            LikeChange change = new LikeChange(filmId, userId, false);
+            changePublisher.publish(change);
+        }
 
         String deleteReviewsSql = "DELETE FROM reviews WHERE user_id = ?";
         jdbcTemplate.update(deleteReviewsSql, userId);
 
         String deleteUserSql = "DELETE FROM users WHERE id = ?";
-        jdbcTemplate.update(deleteUserSql, userId);
+        if (jdbcTemplate.update(deleteUserSql, userId) > 0) {
+            changePublisher.publish(UserChange.deleted(userId));
+        }
     }
 
     private void loadFriendsForUsers(List<User> users) {
         if (users.isEmpty()) return;
 
-        String userIds = users.stream()
+        List<Long> userIds = users.stream()
                 .map(User::getId)
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
+                .collect(Collectors.toList());
 
-        String sql = String.format(
-                "SELECT user_id, friend_id FROM friendships WHERE user_id IN (%s) AND status = 'CONFIRMED'",
-                userIds
-        );
+        String sql = "SELECT user_id, friend_id FROM friendships WHERE user_id = ANY(?) AND status = 'CONFIRMED'";
 
         Map<Long, Set<Long>> userFriendsMap = new HashMap<>();
-        jdbcTemplate.query(sql, rs -> {
+        idBatchLoader.query(sql, userIds, rs -> {
             Long userId = rs.getLong("user_id");
             Long friendId = rs.getLong("friend_id");
             userFriendsMap.computeIfAbsent(userId, k -> new HashSet<>()).add(friendId);
@@ -117,27 +158,15 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
-    private void loadFriendsForUser(User user) {
-        String sql = "SELECT friend_id FROM friendships WHERE user_id = ? AND status = 'CONFIRMED'";
-        Set<Long> friends = new HashSet<>(jdbcTemplate.query(sql,
-                new Object[]{user.getId()},
-                (rs, rowNum) -> rs.getLong("friend_id")));
-        user.setFriends(friends);
-    }
-
     @Override
     public Map<Long, User> getUsersByIds(Set<Long> userIds) {
         if (userIds.isEmpty()) {
             return Collections.emptyMap();
         }
 
-        String inClause = userIds.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
+        String sql = "SELECT * FROM users WHERE id = ANY(?)";
 
-        String sql = "SELECT * FROM users WHERE id IN (" + inClause + ")";
-
-        List<User> users = jdbcTemplate.query(sql, userRowMapper);
+        List<User> users = idBatchLoader.query(sql, userIds, userRowMapper);
 
         return users.stream()
                 .collect(Collectors.toMap(User::getId, Function.identity()));
@@ -6,12 +6,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     List<User> getAll();
 
+    List<User> getPage(Long afterId, int limit);
+
+    void streamAll(Consumer<List<User>> consumer);
+
     Optional<User> getById(Long id);
 
+    boolean exists(Long id);
+
+    Set<Long> getExistingIds(Set<Long> ids);
+
     User create(User user);
 
     User update(User user);
@@ -5,6 +5,7 @@ DELETE FROM friendships;
 DELETE FROM directors_films;
 DELETE FROM reviews;
 DELETE FROM feed_events;
+DELETE FROM user_recommendations;
 
 DELETE FROM films;
 DELETE FROM users;
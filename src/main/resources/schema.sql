@@ -23,6 +23,7 @@ CREATE TABLE IF NOT EXISTS films (
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL,
     mpa_id BIGINT,
+    likes_count INTEGER NOT NULL DEFAULT 0,
     FOREIGN KEY (mpa_id) REFERENCES mpa_ratings(id) ON DELETE SET NULL
 );
 
@@ -42,6 +43,7 @@ CREATE TABLE IF NOT EXISTS film_genres (
 CREATE TABLE IF NOT EXISTS film_likes (
     film_id BIGINT NOT NULL,
     user_id BIGINT NOT NULL,
+    PRIMARY KEY (film_id, user_id),
     FOREIGN KEY (film_id) REFERENCES films(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
@@ -89,7 +91,16 @@ CREATE TABLE IF NOT EXISTS feed_events (
     entity_id BIGINT NOT NULL
 );
 
+CREATE TABLE IF NOT EXISTS user_recommendations (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    rec_mode VARCHAR(16) NOT NULL,
+    film_ids BIGINT ARRAY NOT NULL,
+    computed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, rec_mode)
+);
+
 CREATE INDEX IF NOT EXISTS idx_films_mpa ON films(mpa_id);
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films(likes_count DESC);
 CREATE INDEX IF NOT EXISTS idx_film_genres_film ON film_genres(film_id);
 CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres(genre_id);
 CREATE INDEX IF NOT EXISTS idx_film_likes_film ON film_likes(film_id);
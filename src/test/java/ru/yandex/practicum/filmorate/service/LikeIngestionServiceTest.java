@@ -0,0 +1,280 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.feed.FeedDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeCommand;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeJournal;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({LikeDbStorage.class, FilmDbStorage.class, UserDbStorage.class, FeedDbStorage.class, FilmRowMapper.class,
+        UserRowMapper.class, FilmPopularityIndex.class, UserLikesIndex.class, ChangePublisher.class,
+        IdBatchLoader.class, FilmSearchIndex.class, FilmSuggestIndex.class, ExistenceIndex.class,
+        FriendshipDbStorage.class, FriendshipGraph.class, FriendshipPathFinder.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LikeIngestionServiceTest {
+
+    private final LikeDbStorage likeStorage;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final FeedDbStorage feedStorage;
+    private final PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private LikeIngestionService service;
+    private LikeJournal journal;
+    private Film[] films;
+    private User[] users;
+
+    @BeforeEach
+    void setUp() {
+        films = new Film[2];
+        for (int i = 0; i < films.length; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            film.setMpa(new Mpa(1L, null));
+            films[i] = filmStorage.create(film);
+        }
+        users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userStorage.create(new User("user" + i + "@email.com", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        gate.countDown();
+        if (service != null) {
+            service.stop();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        // Пользователи удаляются первыми, чтобы индексы получили удаление их лайков
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+        filmStorage.getAll().forEach(film -> filmStorage.deleteFilmById(film.getId()));
+    }
+
+    @Test
+    void testRejectsWithServiceUnavailableWhenQueueIsFull() {
+        service = start("queued", new GatedLikeStorage(likeStorage, gate), 1, journal());
+
+        service.submit(films[0].getId(), users[0].getId(), true);
+
+        // Единственное место занято, пока пачка не записана
+        assertThatThrownBy(() -> service.submit(films[0].getId(), users[1].getId(), true))
+                .isInstanceOf(ServiceUnavailableException.class);
+
+        gate.countDown();
+        service.stop();
+        assertThat(likeStorage.getLikesCount(films[0].getId())).isEqualTo(1);
+    }
+
+    @Test
+    void testStopDrainsAcceptedCommands() throws InterruptedException {
+        service = start("queued", new GatedLikeStorage(likeStorage, gate), 10, journal());
+        for (User user : users) {
+            service.submit(films[0].getId(), user.getId(), true);
+        }
+        service.submit(films[1].getId(), users[0].getId(), true);
+
+        Thread opener = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            gate.countDown();
+        });
+        opener.start();
+        service.stop();
+        opener.join();
+
+        assertThat(likeStorage.getLikesCount(films[0].getId())).isEqualTo(3);
+        assertThat(likeStorage.getLikesCount(films[1].getId())).isEqualTo(1);
+    }
+
+    @Test
+    void testFailedBatchFallsBackToSingleCommands() {
+        service = start("queued", new GatedLikeStorage(likeStorage, gate), 10, journal());
+        Film deleted = films[1];
+        // Первая команда задерживает запись, следующие попадают в одну пачку
+        service.submit(films[0].getId(), users[0].getId(), true);
+        service.submit(deleted.getId(), users[1].getId(), true);
+        service.submit(films[0].getId(), users[1].getId(), true);
+        service.submit(films[0].getId(), users[2].getId(), true);
+        filmStorage.delete(deleted.getId());
+
+        gate.countDown();
+        service.stop();
+
+        assertThat(likeStorage.getLikesCount(films[0].getId())).isEqualTo(3);
+        assertThat(feedStorage.getUserFeed(users[1].getId())).extracting(Event::getEntityId)
+                .containsExactly(films[0].getId());
+    }
+
+    @Test
+    void testWritesEventsOnlyForEffectiveChanges() {
+        service = start("queued", likeStorage, 10, journal());
+        service.submit(films[0].getId(), users[0].getId(), true);
+        service.submit(films[0].getId(), users[0].getId(), true);
+        service.submit(films[1].getId(), users[0].getId(), false);
+        service.stop();
+
+        assertThat(feedStorage.getUserFeed(users[0].getId()))
+                .extracting(Event::getEntityId, Event::getOperation)
+                .containsExactly(tuple(films[0].getId(), Event.Operation.ADD));
+    }
+
+    @Test
+    void testQueuedModeRequiresJournalFile() {
+        assertThatThrownBy(() -> start("queued", likeStorage, 10, new LikeJournal("")))
+                .isInstanceOf(IllegalStateException.class);
+        service = start("direct", likeStorage, 10, new LikeJournal(""));
+        assertThat(service.isEnabled()).isFalse();
+    }
+
+    @Test
+    void testReplaysJournalOnlyInQueuedMode() throws Exception {
+        Path file = tempDir.resolve("likes.journal");
+        LikeJournal journal = new LikeJournal(file.toString());
+        journal.open();
+        journal.append(new LikeCommand(films[0].getId(), users[0].getId(), true, 1000L));
+        journal.append(new LikeCommand(films[1].getId(), users[0].getId(), true, 1001L));
+        journal.close();
+
+        service = start("direct", likeStorage, 10, new LikeJournal(file.toString()));
+        assertThat(likeStorage.getLikesCount(films[0].getId())).isZero();
+        service.stop();
+
+        Path missing = tempDir.resolve("missing.journal");
+        service = start("direct", likeStorage, 10, new LikeJournal(missing.toString()));
+        assertThat(Files.exists(missing)).isFalse();
+        service.stop();
+
+        LikeJournal queuedJournal = new LikeJournal(file.toString());
+        service = start("queued", likeStorage, 10, queuedJournal);
+        assertThat(likeStorage.getLikesCount(films[0].getId())).isEqualTo(1);
+        assertThat(likeStorage.getLikesCount(films[1].getId())).isEqualTo(1);
+        service.stop();
+        queuedJournal.close();
+
+        List<LikeCommand> pending = new ArrayList<>();
+        LikeJournal reopened = new LikeJournal(file.toString());
+        reopened.open();
+        reopened.replay(10, pending::addAll);
+        reopened.close();
+        assertThat(pending).isEmpty();
+    }
+
+    private LikeJournal journal() {
+        journal = new LikeJournal(tempDir.resolve("queued.journal").toString());
+        return journal;
+    }
+
+    private LikeIngestionService start(String mode, LikeStorage storage, int capacity, LikeJournal journal) {
+        LikeIngestionService ingestion = new LikeIngestionService(storage, feedStorage, journal, transactionManager);
+        ReflectionTestUtils.setField(ingestion, "mode", mode);
+        ReflectionTestUtils.setField(ingestion, "capacity", capacity);
+        ReflectionTestUtils.setField(ingestion, "batchSize", 10);
+        ReflectionTestUtils.setField(ingestion, "enqueueTimeoutMs", 100L);
+        ingestion.start();
+        return ingestion;
+    }
+
+    /**
+     * Хранилище, которое не записывает пачки, пока не открыт gate.
+     */
+    private record GatedLikeStorage(LikeStorage delegate, CountDownLatch gate) implements LikeStorage {
+
+        @Override
+        public void addLike(Long filmId, Long userId) {
+            delegate.addLike(filmId, userId);
+        }
+
+        @Override
+        public void removeLike(Long filmId, Long userId) {
+            delegate.removeLike(filmId, userId);
+        }
+
+        @Override
+        public List<LikeCommand> applyLikes(List<LikeCommand> commands) {
+            try {
+                if (!gate.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("gate не открыт");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return delegate.applyLikes(commands);
+        }
+
+        @Override
+        public int getLikesCount(Long filmId) {
+            return delegate.getLikesCount(filmId);
+        }
+
+        @Override
+        public Set<Long> getCommonLikedFilms(Long userId1, Long userId2) {
+            return delegate.getCommonLikedFilms(userId1, userId2);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.like.LikeCommand;
+import ru.yandex.practicum.filmorate.storage.like.LikeJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Журнал прошлого запуска воспроизводится при старте приложения, и индексы получают воспроизведённые лайки.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:like-journal-replay",
+        "spring.sql.init.data-locations=classpath:data.sql,classpath:like-replay-data.sql",
+        "filmorate.likes.ingestion=queued"})
+class LikeJournalReplayTest {
+
+    @Autowired
+    private FilmController filmController;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) throws IOException {
+        Path file = Files.createTempFile("filmorate-likes", ".journal");
+        file.toFile().deleteOnExit();
+        // Пустой файл журнал принимает за новый и записывает заголовок
+        LikeJournal journal = new LikeJournal(file.toString());
+        journal.open();
+        journal.append(new LikeCommand(2L, 1L, true, 1000L));
+        journal.append(new LikeCommand(2L, 2L, true, 1001L));
+        journal.append(new LikeCommand(1L, 1L, true, 1002L));
+        journal.append(new LikeCommand(1L, 1L, false, 1003L));
+        journal.close();
+        registry.add("filmorate.likes.journal-file", file::toString);
+    }
+
+    @Test
+    void shouldShowReplayedLikesInPopularFilms() {
+        assertThat(filmController.getPopularFilms(10, null, null, "full"))
+                .extracting(Film::getId, Film::getLikesCount)
+                .containsExactly(tuple(2L, 2), tuple(1L, 0));
+    }
+}
@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.FriendshipBatchResult;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.feed.FeedDbStorage;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({UserServiceTest.Config.class, FeedDbStorage.class, UserDbStorage.class, UserRowMapper.class,
+        FilmDbStorage.class, FilmRowMapper.class, FilmPopularityIndex.class, UserLikesIndex.class,
+        ChangePublisher.class, IdBatchLoader.class, FilmSearchIndex.class, FilmSuggestIndex.class,
+        ExistenceIndex.class, FriendshipDbStorage.class, FriendshipGraph.class, FriendshipPathFinder.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserServiceTest {
+
+    private final UserService userService;
+    private final UserDbStorage userStorage;
+    private final FriendshipDbStorage friendshipStorage;
+    private final FeedDbStorage feedStorage;
+    private final FailingFeedStorage failingFeedStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private User[] users;
+
+    @BeforeEach
+    void setUp() {
+        users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userStorage.create(new User("user" + i + "@email.com", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        failingFeedStorage.fail = false;
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+    }
+
+    @Test
+    void testAddFriendsRejectsUnknownUsersAndSelfEdges() {
+        Long unknownId = users[2].getId() + 1000;
+
+        assertThatThrownBy(() -> userService.addFriends(List.of(edge(0, 1),
+                new FriendshipEdge(users[0].getId(), unknownId))))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining(unknownId.toString());
+        assertThatThrownBy(() -> userService.addFriends(List.of(edge(0, 1), edge(2, 2))))
+                .isInstanceOf(ValidationException.class);
+
+        assertThat(countFriendships()).isZero();
+        assertThat(feedStorage.getUserFeed(users[0].getId())).isEmpty();
+    }
+
+    @Test
+    void testAddFriendsSkipsDuplicatesAndExistingEdges() {
+        friendshipStorage.addFriend(users[0].getId(), users[1].getId());
+
+        FriendshipBatchResult result = userService.addFriends(List.of(edge(0, 1), edge(0, 2), edge(0, 2),
+                edge(1, 2)));
+
+        assertThat(result.getAdded()).isEqualTo(2);
+        assertThat(result.getSkipped()).isEqualTo(2);
+        assertThat(countFriendships()).isEqualTo(3);
+        assertThat(friendshipStorage.getFriends(users[0].getId()))
+                .containsExactlyInAnyOrder(users[1].getId(), users[2].getId());
+        assertThat(feedStorage.getUserFeed(users[0].getId())).extracting(Event::getEntityId)
+                .containsExactly(users[2].getId());
+        assertThat(feedStorage.getUserFeed(users[1].getId())).extracting(Event::getEntityId)
+                .containsExactly(users[2].getId());
+    }
+
+    @Test
+    void testAddFriendsSkipsEdgeAddedByConcurrentTransaction() throws InterruptedException {
+        CountDownLatch inserted = new CountDownLatch(1);
+        Thread other = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            friendshipStorage.addFriend(users[0].getId(), users[1].getId());
+            inserted.countDown();
+            // Пачка упирается в незакоммиченную строку и ждёт, пока эта транзакция не завершится
+            sleep(300);
+        }));
+        other.start();
+        assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        FriendshipBatchResult result = userService.addFriends(List.of(edge(0, 1), edge(0, 2)));
+        other.join();
+
+        assertThat(result.getAdded()).isEqualTo(1);
+        assertThat(result.getSkipped()).isEqualTo(1);
+        assertThat(countFriendships()).isEqualTo(2);
+        assertThat(feedStorage.getUserFeed(users[0].getId())).extracting(Event::getEntityId)
+                .containsExactly(users[2].getId());
+    }
+
+    @Test
+    void testAddFriendsRollsBackWhenFeedFails() {
+        failingFeedStorage.fail = true;
+
+        assertThatThrownBy(() -> userService.addFriends(List.of(edge(0, 1), edge(0, 2))))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(countFriendships()).isZero();
+        // Граф обновляется только после коммита, поэтому откаченные связи в него не попали
+        assertThat(friendshipStorage.areFriends(users[0].getId(), users[1].getId())).isFalse();
+    }
+
+    private FriendshipEdge edge(int user, int friend) {
+        return new FriendshipEdge(users[user].getId(), users[friend].getId());
+    }
+
+    private int countFriendships() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Integer.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        FailingFeedStorage failingFeedStorage(FeedDbStorage feedDbStorage) {
+            return new FailingFeedStorage(feedDbStorage);
+        }
+
+        @Bean
+        UserService userService(UserDbStorage userStorage, FriendshipDbStorage friendshipStorage,
+                                FailingFeedStorage feedStorage) {
+            return new UserService(userStorage, friendshipStorage, new FeedService(feedStorage, userStorage));
+        }
+    }
+
+    /**
+     * Хранилище ленты, которое по флагу fail отказывается записывать события.
+     */
+    static class FailingFeedStorage implements FeedStorage {
+        private final FeedStorage delegate;
+        volatile boolean fail;
+
+        FailingFeedStorage(FeedStorage delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void addEvent(Event event) {
+            delegate.addEvent(event);
+        }
+
+        @Override
+        public void addEvents(List<Event> events) {
+            if (fail) {
+                throw new IllegalStateException("Запись ленты отключена");
+            }
+            delegate.addEvents(events);
+        }
+
+        @Override
+        public List<Event> getUserFeed(Long userId) {
+            return delegate.getUserFeed(userId);
+        }
+
+        @Override
+        public void streamUserFeed(Long userId, Consumer<List<Event>> consumer) {
+            delegate.streamUserFeed(userId, consumer);
+        }
+
+        @Override
+        public boolean hasUserLikedReview(Long userId, Long reviewId) {
+            return delegate.hasUserLikedReview(userId, reviewId);
+        }
+    }
+}
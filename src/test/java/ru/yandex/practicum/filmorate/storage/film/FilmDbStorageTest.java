@@ -1,31 +1,52 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.director.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmDbStorage.class, FilmRowMapper.class})
+@Import({FilmDbStorage.class, FilmRowMapper.class, FilmPopularityIndex.class, FilmSearchIndex.class,
+        FilmSuggestIndex.class, DirectorDbStorage.class, ChangePublisher.class, IdBatchLoader.class,
+        ExistenceIndex.class})
 @ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 class FilmDbStorageTest {
 
     private final FilmDbStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final DirectorDbStorage directorStorage;
     private Film testFilm;
 
     @BeforeEach
@@ -41,6 +62,12 @@ class FilmDbStorageTest {
         testFilm.setMpa(mpa);
     }
 
+    @AfterEach
+    void tearDown() {
+        filmStorage.getAll().forEach(film -> filmStorage.deleteFilmById(film.getId()));
+        directorStorage.findAll().forEach(director -> directorStorage.deleteById(director.getId()));
+    }
+
     @Test
     void testCreateFilm() {
         Film createdFilm = filmStorage.create(testFilm);
@@ -128,4 +155,129 @@ class FilmDbStorageTest {
 
         assertThat(foundFilm).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetPage() {
+        Film first = filmStorage.create(testFilm);
+
+        Film second = new Film();
+        second.setName("Second Film");
+        second.setDescription("Second Description");
+        second.setReleaseDate(LocalDate.of(2003, 1, 1));
+        second.setDuration(95);
+        filmStorage.create(second);
+
+        assertThat(filmStorage.getPage(0L, 1)).extracting(Film::getId)
+                .containsExactly(first.getId());
+        assertThat(filmStorage.getPage(first.getId(), 10)).extracting(Film::getId)
+                .containsExactly(second.getId());
+    }
+
+    @Test
+    void testStreamAll() {
+        Film createdFilm = filmStorage.create(testFilm);
+        List<Film> streamed = new ArrayList<>();
+
+        filmStorage.streamAll(streamed::addAll);
+
+        assertThat(streamed).extracting(Film::getId).containsExactly(createdFilm.getId());
+        assertThat(streamed.get(0).getMpa().getId()).isEqualTo(1L);
+    }
+
+    @Test
+    void testGetFilmByIdWithGenres() {
+        testFilm.setGenres(new LinkedHashSet<>(List.of(new Genre(2L, null), new Genre(1L, null))));
+        Film createdFilm = filmStorage.create(testFilm);
+
+        Film foundFilm = filmStorage.getById(createdFilm.getId()).orElseThrow();
+
+        assertThat(foundFilm.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+        assertThat(foundFilm.getGenres()).extracting(Genre::getName).doesNotContainNull();
+        assertThat(foundFilm.getDirectors()).isEmpty();
+        assertThat(foundFilm.getLikes()).isEmpty();
+        assertThat(foundFilm.getMpa().getName()).isEqualTo("G");
+    }
+
+    @Test
+    void testSearchFilmsByTitle() {
+        Film createdFilm = filmStorage.create(testFilm);
+
+        assertThat(filmStorage.searchFilms("st fi", true, true, 0, 10)).extracting(Film::getId)
+                .containsExactly(createdFilm.getId());
+        assertThat(filmStorage.searchFilms("st fi", false, true, 0, 10)).isEmpty();
+    }
+
+    @Test
+    void testSearchFilmsByDirector() {
+        Director director = directorStorage.create(new Director(null, "Christopher Nolan"));
+        testFilm.setDirectors(List.of(director));
+        Film createdFilm = filmStorage.create(testFilm);
+
+        assertThat(filmStorage.searchFilms("NOLA", false, true, 0, 10)).extracting(Film::getId)
+                .containsExactly(createdFilm.getId());
+        assertThat(filmStorage.searchFilms("nola", true, false, 0, 10)).isEmpty();
+
+        directorStorage.update(new Director(director.getId(), "Someone Else"));
+
+        assertThat(filmStorage.searchFilms("nola", false, true, 0, 10)).isEmpty();
+        assertThat(filmStorage.searchFilms("one el", false, true, 0, 10)).extracting(Film::getId)
+                .containsExactly(createdFilm.getId());
+    }
+
+    @Test
+    void testGetFilmsByDirectorSorted() {
+        jdbcTemplate.update("INSERT INTO directors (id, name) VALUES (100, 'Test Director')");
+        testFilm.setDirectors(List.of(new Director(100L, "Test Director")));
+        Film older = filmStorage.create(testFilm);
+
+        Film newer = new Film();
+        newer.setName("Newer Film");
+        newer.setDescription("Newer Description");
+        newer.setReleaseDate(LocalDate.of(2010, 1, 1));
+        newer.setDuration(90);
+        newer.setMpa(testFilm.getMpa());
+        newer.setDirectors(List.of(new Director(100L, "Test Director")));
+        newer = filmStorage.create(newer);
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE id = ?", newer.getId());
+
+        assertThat(filmStorage.getFilmsByDirector(100L, "year")).extracting(Film::getId)
+                .containsExactly(older.getId(), newer.getId());
+        assertThat(filmStorage.getFilmsByDirector(100L, "likes")).extracting(Film::getId)
+                .containsExactly(newer.getId(), older.getId());
+    }
+
+    @Test
+    void testSearchIgnoresDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            testFilm.setName("Inception");
+            Film createdFilm = filmStorage.create(testFilm);
+
+            assertThat(filmStorage.searchFilms("incep", true, false, 0, 10)).extracting(Film::getId)
+                    .containsExactly(createdFilm.getId());
+            assertThat(filmStorage.suggest("ince", 10)).extracting(Suggestion::getId)
+                    .containsExactly(createdFilm.getId());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void testSuggestByPrefix() {
+        Director director = directorStorage.create(new Director(null, "Test  Director"));
+        testFilm.setDirectors(List.of(director));
+        Film createdFilm = filmStorage.create(testFilm);
+
+        assertThat(filmStorage.suggest("TEST ", 10)).extracting(Suggestion::getType, Suggestion::getId)
+                .containsExactly(
+                        tuple(Suggestion.Type.DIRECTOR, director.getId()),
+                        tuple(Suggestion.Type.FILM, createdFilm.getId()));
+        assertThat(filmStorage.suggest("test f", 10)).extracting(Suggestion::getText)
+                .containsExactly("Test Film");
+
+        filmStorage.deleteFilmById(createdFilm.getId());
+
+        assertThat(filmStorage.suggest("test f", 10)).isEmpty();
+    }
+}
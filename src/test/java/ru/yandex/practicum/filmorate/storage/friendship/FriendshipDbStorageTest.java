@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.friendship;
 
 import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,11 +10,21 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.FriendshipEdge;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,13 +32,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FriendshipDbStorage.class, UserDbStorage.class, UserRowMapper.class})
+@Import({FriendshipDbStorage.class, UserDbStorage.class, UserRowMapper.class, ChangePublisher.class,
+        IdBatchLoader.class, FriendshipGraph.class, ExistenceIndex.class,
+        FriendshipPathFinder.class})
 @ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 class FriendshipDbStorageTest {
 
     private final FriendshipDbStorage friendshipStorage;
     private final UserDbStorage userStorage;
     private final JdbcTemplate jdbcTemplate;
+    private final FriendshipGraph friendshipGraph;
+    private final PlatformTransactionManager transactionManager;
 
     private User user1;
     private User user2;
@@ -43,6 +59,11 @@ class FriendshipDbStorageTest {
                 LocalDate.of(1992, 1, 1)));
     }
 
+    @AfterEach
+    void tearDown() {
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+    }
+
     @Test
     void testAddFriend() {
         friendshipStorage.addFriend(user1.getId(), user2.getId());
@@ -85,4 +106,128 @@ class FriendshipDbStorageTest {
         assertThat(commonFriends).hasSize(1);
         assertThat(commonFriends).contains(user3.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGraphSeesChangesOnlyAfterCommit() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            friendshipStorage.addFriend(user1.getId(), user2.getId());
+            assertThat(friendshipGraph.areFriends(user1.getId(), user2.getId())).isFalse();
+        });
+        assertThat(friendshipGraph.areFriends(user1.getId(), user2.getId())).isTrue();
+
+        transaction.executeWithoutResult(status -> {
+            friendshipStorage.addFriend(user1.getId(), user3.getId());
+            status.setRollbackOnly();
+        });
+        assertThat(friendshipGraph.areFriends(user1.getId(), user3.getId())).isFalse();
+    }
+
+    @Test
+    void testFriendshipGraphFollowsChanges() {
+        friendshipStorage.addFriend(user1.getId(), user3.getId());
+        friendshipStorage.addFriend(user1.getId(), user2.getId());
+        friendshipStorage.addFriend(user2.getId(), user1.getId());
+
+        assertThat(friendshipGraph.getFriendIds(user1.getId())).containsExactly(user2.getId(), user3.getId());
+
+        friendshipStorage.removeFriend(user1.getId(), user3.getId());
+        userStorage.deleteUserById(user2.getId());
+
+        assertThat(friendshipGraph.getFriendIds(user1.getId())).isEmpty();
+        assertThat(friendshipGraph.getFriendIds(user2.getId())).isEmpty();
+    }
+
+    @Test
+    void testFriendshipGraphKeepsRowsAcrossCompaction() {
+        Object minCompactionSize = ReflectionTestUtils.getField(friendshipGraph, "minCompactionSize");
+        ReflectionTestUtils.setField(friendshipGraph, "minCompactionSize", 3);
+        // Пустые строки удалённых в прошлых тестах пользователей тоже считаются изменёнными
+        friendshipGraph.rebuild();
+        try {
+            User user4 = userStorage.create(new User("user4@email.com", "user4", "User Four",
+                    LocalDate.of(1993, 1, 1)));
+            friendshipStorage.addFriend(user1.getId(), user2.getId());
+            friendshipStorage.addFriend(user1.getId(), user3.getId());
+            friendshipStorage.addFriend(user2.getId(), user3.getId());
+            friendshipStorage.addFriend(user3.getId(), user1.getId());
+
+            assertThat(friendshipGraph.getChangedRowCount()).isEqualTo(3);
+            assertFriendshipGraphRows();
+
+            // Четвёртая изменённая строка превышает порог и запускает сборку CSR
+            friendshipStorage.addFriend(user4.getId(), user1.getId());
+
+            assertThat(friendshipGraph.getChangedRowCount()).isZero();
+            assertFriendshipGraphRows();
+            assertThat(friendshipGraph.getFriendIds(user4.getId())).containsExactly(user1.getId());
+            assertThat(friendshipGraph.getCommonFriendIds(user3.getId(), user4.getId())).containsExactly(user1.getId());
+
+            friendshipStorage.removeFriend(user1.getId(), user3.getId());
+
+            assertThat(friendshipGraph.getChangedRowCount()).isEqualTo(1);
+            assertThat(friendshipGraph.getFriendIds(user1.getId())).containsExactly(user2.getId());
+            assertThat(friendshipGraph.areFriends(user1.getId(), user3.getId())).isFalse();
+            assertThat(friendshipGraph.getCommonFriendIds(user1.getId(), user2.getId())).isEmpty();
+        } finally {
+            ReflectionTestUtils.setField(friendshipGraph, "minCompactionSize", minCompactionSize);
+        }
+    }
+
+    private void assertFriendshipGraphRows() {
+        assertThat(friendshipGraph.getFriendIds(user1.getId())).containsExactly(user2.getId(), user3.getId());
+        assertThat(friendshipGraph.getFriendIds(user2.getId())).containsExactly(user3.getId());
+        assertThat(friendshipGraph.getFriendIds(user3.getId())).containsExactly(user1.getId());
+        assertThat(friendshipGraph.areFriends(user1.getId(), user3.getId())).isTrue();
+        assertThat(friendshipGraph.areFriends(user3.getId(), user1.getId())).isTrue();
+        assertThat(friendshipGraph.areFriends(user3.getId(), user2.getId())).isFalse();
+        assertThat(friendshipGraph.getCommonFriendIds(user1.getId(), user2.getId())).containsExactly(user3.getId());
+        assertThat(friendshipGraph.getCommonFriendIds(user2.getId(), user3.getId())).isEmpty();
+    }
+
+    @Test
+    void testGetFriendSuggestionsRankedByMutualFriends() {
+        User user4 = userStorage.create(new User("user4@email.com", "user4", "User Four",
+                LocalDate.of(1993, 1, 1)));
+        friendshipStorage.addFriend(user1.getId(), user2.getId());
+        friendshipStorage.addFriend(user1.getId(), user3.getId());
+        friendshipStorage.addFriend(user2.getId(), user4.getId());
+        friendshipStorage.addFriend(user3.getId(), user4.getId());
+        friendshipStorage.addFriend(user2.getId(), user3.getId());
+        friendshipStorage.addFriend(user3.getId(), user1.getId());
+
+        assertThat(friendshipStorage.getFriendSuggestions(user1.getId(), 10)).containsExactly(user4.getId());
+        assertThat(friendshipStorage.getFriendSuggestions(user4.getId(), 10)).isEmpty();
+    }
+
+    @Test
+    void testGetPathFindsShortestChain() {
+        User user4 = userStorage.create(new User("user4@email.com", "user4", "User Four",
+                LocalDate.of(1993, 1, 1)));
+        friendshipStorage.addFriend(user1.getId(), user2.getId());
+        friendshipStorage.addFriend(user2.getId(), user3.getId());
+        friendshipStorage.addFriend(user3.getId(), user4.getId());
+        friendshipStorage.addFriend(user1.getId(), user3.getId());
+
+        assertThat(friendshipStorage.getPath(user1.getId(), user4.getId(), 6))
+                .containsExactly(user1.getId(), user3.getId(), user4.getId());
+        assertThat(friendshipStorage.getPath(user1.getId(), user4.getId(), 1)).isEmpty();
+        assertThat(friendshipStorage.getPath(user4.getId(), user1.getId(), 6)).isEmpty();
+    }
+
+    @Test
+    void testAddFriendsBatch() {
+        List<FriendshipEdge> edges = List.of(new FriendshipEdge(user1.getId(), user2.getId()),
+                new FriendshipEdge(user1.getId(), user3.getId()),
+                new FriendshipEdge(user3.getId(), user2.getId()));
+
+        assertThat(friendshipStorage.addFriends(edges)).containsExactlyElementsOf(edges);
+        // Уже существующие связи не вставляются повторно
+        assertThat(friendshipStorage.addFriends(edges)).isEmpty();
+
+        assertThat(friendshipStorage.getFriends(user1.getId())).containsExactlyInAnyOrder(user2.getId(), user3.getId());
+        assertThat(friendshipStorage.areFriends(user3.getId(), user2.getId())).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Integer.class)).isEqualTo(3);
+    }
+}
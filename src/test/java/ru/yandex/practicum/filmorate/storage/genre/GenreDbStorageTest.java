@@ -9,6 +9,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
 
 import java.util.List;
 import java.util.Optional;
@@ -18,7 +19,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({GenreDbStorage.class, GenreRowMapper.class})
+@Import({GenreDbStorage.class, GenreRowMapper.class, IdBatchLoader.class})
 @ActiveProfiles("test")
 class GenreDbStorageTest {
 
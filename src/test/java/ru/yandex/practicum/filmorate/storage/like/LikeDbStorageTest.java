@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
 import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,23 +9,45 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({LikeDbStorage.class, FilmDbStorage.class, UserDbStorage.class, FilmRowMapper.class, UserRowMapper.class})
+@Import({LikeDbStorage.class, FilmDbStorage.class, UserDbStorage.class, FilmRowMapper.class, UserRowMapper.class,
+        FilmPopularityIndex.class, UserLikesIndex.class, ChangePublisher.class, IdBatchLoader.class,
+        FilmSearchIndex.class, FilmSuggestIndex.class, ExistenceIndex.class, FriendshipDbStorage.class,
+        FriendshipGraph.class, FriendshipPathFinder.class})
 @ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 class LikeDbStorageTest {
 
     private final LikeDbStorage likeStorage;
@@ -52,6 +75,13 @@ class LikeDbStorageTest {
                 LocalDate.of(1990, 1, 1)));
     }
 
+    @AfterEach
+    void tearDown() {
+        // Пользователи удаляются первыми, чтобы индексы получили удаление их лайков
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+        filmStorage.getAll().forEach(film -> filmStorage.deleteFilmById(film.getId()));
+    }
+
     @Test
     void testAddLike() {
         likeStorage.addLike(testFilm.getId(), testUser.getId());
@@ -59,6 +89,7 @@ class LikeDbStorageTest {
         int likesCount = likeStorage.getLikesCount(testFilm.getId());
 
         assertThat(likesCount).isEqualTo(1);
+        assertThat(filmStorage.getById(testFilm.getId()).orElseThrow().getLikesCount()).isEqualTo(1);
     }
 
     @Test
@@ -83,4 +114,166 @@ class LikeDbStorageTest {
 
         assertThat(likesCount).isEqualTo(2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testAddLikeTwiceCountsOnce() {
+        likeStorage.addLike(testFilm.getId(), testUser.getId());
+        likeStorage.addLike(testFilm.getId(), testUser.getId());
+
+        assertThat(likeStorage.getLikesCount(testFilm.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void testConcurrentAddLikeCountsOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> likeStorage.addLike(testFilm.getId(), testUser.getId())));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(likeStorage.getLikesCount(testFilm.getId())).isEqualTo(1);
+        assertThat(filmStorage.getById(testFilm.getId()).orElseThrow().getLikesCount()).isEqualTo(1);
+        assertThat(filmStorage.getPopularFilms(1)).extracting(Film::getLikesCount).containsExactly(1);
+    }
+
+    @Test
+    void testDeleteUserReleasesLikes() {
+        likeStorage.addLike(testFilm.getId(), testUser.getId());
+
+        userStorage.delete(testUser.getId());
+
+        assertThat(likeStorage.getLikesCount(testFilm.getId())).isZero();
+        assertThat(filmStorage.getById(testFilm.getId()).orElseThrow().getLikesCount()).isZero();
+        assertThat(filmStorage.getPopularFilms(1)).extracting(Film::getLikesCount).containsExactly(0);
+    }
+
+    @Test
+    void testApplyLikesKeepsLastCommandPerPair() {
+        User user2 = userStorage.create(new User("user2@email.com", "user2", "User Two",
+                LocalDate.of(1991, 1, 1)));
+        likeStorage.addLike(testFilm.getId(), user2.getId());
+
+        likeStorage.applyLikes(List.of(
+                new LikeCommand(testFilm.getId(), testUser.getId(), true, 1L),
+                new LikeCommand(testFilm.getId(), user2.getId(), false, 2L),
+                new LikeCommand(testFilm.getId(), testUser.getId(), false, 3L),
+                new LikeCommand(testFilm.getId(), testUser.getId(), true, 4L)));
+
+        assertThat(likeStorage.getLikesCount(testFilm.getId())).isEqualTo(1);
+        assertThat(filmStorage.getById(testFilm.getId()).orElseThrow().getLikesCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetPopularFilmsOrderedByLikes() {
+        Film secondFilm = new Film();
+        secondFilm.setName("Second Film");
+        secondFilm.setDescription("Second Description");
+        secondFilm.setReleaseDate(LocalDate.of(2001, 1, 1));
+        secondFilm.setDuration(100);
+        filmStorage.create(secondFilm);
+
+        User user2 = userStorage.create(new User("user2@email.com", "user2", "User Two",
+                LocalDate.of(1991, 1, 1)));
+        likeStorage.addLike(secondFilm.getId(), testUser.getId());
+        likeStorage.addLike(secondFilm.getId(), user2.getId());
+        likeStorage.addLike(testFilm.getId(), user2.getId());
+
+        assertThat(filmStorage.getPopularFilms(2)).extracting(Film::getId)
+                .containsExactly(secondFilm.getId(), testFilm.getId());
+
+        likeStorage.removeLike(secondFilm.getId(), testUser.getId());
+        likeStorage.removeLike(secondFilm.getId(), user2.getId());
+
+        assertThat(filmStorage.getPopularFilms(1)).extracting(Film::getId)
+                .containsExactly(testFilm.getId());
+    }
+
+    @Test
+    void testGetPopularFilmsByGenreAndYear() {
+        Film comedy = new Film();
+        comedy.setName("Comedy");
+        comedy.setDescription("Comedy Description");
+        comedy.setReleaseDate(LocalDate.of(2000, 6, 1));
+        comedy.setDuration(100);
+        comedy.setGenres(new LinkedHashSet<>(List.of(new Genre(1L, null))));
+        filmStorage.create(comedy);
+        likeStorage.addLike(comedy.getId(), testUser.getId());
+
+        assertThat(filmStorage.getPopularFilmsByGenre(10, 1L)).extracting(Film::getId)
+                .containsExactly(comedy.getId());
+        assertThat(filmStorage.getPopularFilmsByYear(10, 2000)).extracting(Film::getId)
+                .containsExactly(comedy.getId(), testFilm.getId());
+        assertThat(filmStorage.getPopularFilmsByGenreAndYear(10, 1L, 2000)).extracting(Film::getId)
+                .containsExactly(comedy.getId());
+        assertThat(filmStorage.getPopularFilmsByGenreAndYear(10, 1L, 2001)).isEmpty();
+
+        comedy.setReleaseDate(LocalDate.of(2001, 6, 1));
+        filmStorage.update(comedy);
+
+        assertThat(filmStorage.getPopularFilmsByGenreAndYear(10, 1L, 2000)).isEmpty();
+        assertThat(filmStorage.getPopularFilmsByGenreAndYear(10, 1L, 2001)).extracting(Film::getId)
+                .containsExactly(comedy.getId());
+    }
+
+    @Test
+    void testListsSkipLikesUntilRequested() {
+        likeStorage.addLike(testFilm.getId(), testUser.getId());
+
+        List<Film> films = filmStorage.getByIds(List.of(testFilm.getId()));
+
+        assertThat(films.get(0).getLikes()).isNull();
+        assertThat(films.get(0).getLikesCount()).isEqualTo(1);
+
+        filmStorage.loadLikes(films);
+
+        assertThat(films.get(0).getLikes()).containsExactly(testUser.getId());
+    }
+
+    @Test
+    void testGetCommonLikedFilms() {
+        Film secondFilm = new Film();
+        secondFilm.setName("Second Film");
+        secondFilm.setDescription("Second Description");
+        secondFilm.setReleaseDate(LocalDate.of(2001, 1, 1));
+        secondFilm.setDuration(100);
+        filmStorage.create(secondFilm);
+
+        User user2 = userStorage.create(new User("user2@email.com", "user2", "User Two",
+                LocalDate.of(1991, 1, 1)));
+        likeStorage.addLike(testFilm.getId(), testUser.getId());
+        likeStorage.addLike(secondFilm.getId(), testUser.getId());
+        likeStorage.addLike(secondFilm.getId(), user2.getId());
+
+        assertThat(likeStorage.getCommonLikedFilms(testUser.getId(), user2.getId()))
+                .containsExactly(secondFilm.getId());
+
+        likeStorage.removeLike(secondFilm.getId(), user2.getId());
+
+        assertThat(likeStorage.getCommonLikedFilms(testUser.getId(), user2.getId())).isEmpty();
+    }
+
+    @Test
+    void testSearchFilmsRankedByLikesAndPaged() {
+        Film secondFilm = new Film();
+        secondFilm.setName("Second Test Film");
+        secondFilm.setDescription("Second Description");
+        secondFilm.setReleaseDate(LocalDate.of(2001, 1, 1));
+        secondFilm.setDuration(100);
+        filmStorage.create(secondFilm);
+
+        likeStorage.addLike(secondFilm.getId(), testUser.getId());
+
+        assertThat(filmStorage.searchFilms("test film", true, false, 0, 1)).extracting(Film::getId)
+                .containsExactly(secondFilm.getId());
+        assertThat(filmStorage.searchFilms("test film", true, false, 1, 1)).extracting(Film::getId)
+                .containsExactly(testFilm.getId());
+        assertThat(filmStorage.searchFilms("test film", true, false, 2, 1)).isEmpty();
+    }
+}
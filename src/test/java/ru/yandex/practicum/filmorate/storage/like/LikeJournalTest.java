@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testConcurrentAppendsAreAllDurable() throws Exception {
+        Path file = tempDir.resolve("likes.journal");
+        LikeJournal journal = open(file, Long.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long i = 0; i < 200; i++) {
+                long filmId = i;
+                futures.add(executor.submit(() -> journal.append(command(filmId))));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        journal.close();
+
+        assertThat(Files.size(file)).isEqualTo(LikeJournal.HEADER_BYTES + 200L * LikeJournal.RECORD_BYTES);
+        assertThat(replay(file, 64)).extracting(LikeCommand::filmId)
+                .containsExactlyInAnyOrderElementsOf(LongStream.range(0, 200).boxed().toList());
+    }
+
+    @Test
+    void testReplayStreamsOnlyUnappliedTail() throws IOException {
+        Path file = tempDir.resolve("likes.journal");
+        LikeJournal journal = open(file, Long.MAX_VALUE);
+        for (long i = 0; i < 5; i++) {
+            journal.append(command(i));
+        }
+        journal.markApplied(2);
+        journal.close();
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<LikeCommand> replayed = new ArrayList<>();
+        LikeJournal reopened = open(file, Long.MAX_VALUE);
+        assertThat(reopened.replay(2, batch -> {
+            batchSizes.add(batch.size());
+            replayed.addAll(batch);
+        })).isEqualTo(3);
+        reopened.close();
+
+        assertThat(batchSizes).containsExactly(2, 1);
+        assertThat(replayed).extracting(LikeCommand::filmId).containsExactly(2L, 3L, 4L);
+        assertThat(replay(file, 10)).isEmpty();
+    }
+
+    @Test
+    void testTruncatesWhenEverythingApplied() throws IOException {
+        Path file = tempDir.resolve("likes.journal");
+        LikeJournal journal = open(file, Long.MAX_VALUE);
+        for (long i = 0; i < 3; i++) {
+            journal.append(command(i));
+        }
+        journal.markApplied(3);
+
+        assertThat(Files.size(file)).isEqualTo(LikeJournal.HEADER_BYTES);
+
+        journal.append(command(3));
+        journal.close();
+
+        assertThat(replay(file, 10)).extracting(LikeCommand::filmId).containsExactly(3L);
+    }
+
+    @Test
+    void testCompactsAppliedPrefixUnderSustainedLoad() throws IOException {
+        Path file = tempDir.resolve("likes.journal");
+        LikeJournal journal = open(file, 4L * LikeJournal.RECORD_BYTES);
+        long next = 0;
+        // В журнале всегда остаются неприменённые команды, поэтому полной обрезки не бывает
+        for (int round = 0; round < 10; round++) {
+            journal.append(command(next++));
+            journal.append(command(next++));
+            journal.markApplied(1);
+        }
+
+        assertThat(journal.size()).isLessThanOrEqualTo(LikeJournal.HEADER_BYTES + 16L * LikeJournal.RECORD_BYTES);
+        assertThat(Files.size(file)).isEqualTo(journal.size());
+        journal.close();
+
+        assertThat(replay(file, 3)).extracting(LikeCommand::filmId)
+                .containsExactlyElementsOf(LongStream.range(10, 20).boxed().toList());
+    }
+
+    @Test
+    void testDropsTornTailRecord() throws IOException {
+        Path file = tempDir.resolve("likes.journal");
+        LikeJournal journal = open(file, Long.MAX_VALUE);
+        journal.append(command(0));
+        journal.append(command(1));
+        journal.close();
+        Files.write(file, new byte[LikeJournal.RECORD_BYTES - 1], StandardOpenOption.APPEND);
+
+        LikeJournal reopened = open(file, Long.MAX_VALUE);
+        reopened.append(command(2));
+        reopened.close();
+
+        assertThat(replay(file, 10)).extracting(LikeCommand::filmId).containsExactly(0L, 1L, 2L);
+    }
+
+    @Test
+    void testHeaderPastEndOfFileMeansEverythingApplied() throws IOException {
+        Path file = tempDir.resolve("likes.journal");
+        // Обрезка дошла до диска, а заголовок остался от записей до неё
+        Files.write(file, ByteBuffer.allocate(LikeJournal.HEADER_BYTES)
+                .putInt(LikeJournal.MAGIC)
+                .putLong(LikeJournal.HEADER_BYTES + 3L * LikeJournal.RECORD_BYTES)
+                .array());
+
+        LikeJournal journal = open(file, Long.MAX_VALUE);
+        assertThat(journal.replay(10, batch -> {
+        })).isZero();
+        journal.append(command(0));
+        journal.close();
+
+        assertThat(replay(file, 10)).extracting(LikeCommand::filmId).containsExactly(0L);
+    }
+
+    @Test
+    void testJournalWithoutFileKeepsNothing() throws IOException {
+        LikeJournal journal = new LikeJournal("");
+        journal.open();
+        journal.append(command(0));
+        journal.markApplied(1);
+
+        assertThat(journal.replay(10, batch -> {
+        })).isZero();
+        journal.close();
+    }
+
+    private static LikeJournal open(Path file, long compactionBytes) {
+        LikeJournal journal = new LikeJournal(file.toString(), compactionBytes);
+        journal.open();
+        return journal;
+    }
+
+    private static List<LikeCommand> replay(Path file, int batchSize) throws IOException {
+        List<LikeCommand> replayed = new ArrayList<>();
+        LikeJournal journal = open(file, Long.MAX_VALUE);
+        journal.replay(batchSize, replayed::addAll);
+        journal.close();
+        return replayed;
+    }
+
+    private static LikeCommand command(long filmId) {
+        return new LikeCommand(filmId, 1L, true, 1000 + filmId);
+    }
+}
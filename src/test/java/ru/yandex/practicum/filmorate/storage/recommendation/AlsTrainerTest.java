@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({AlsTrainer.class, AlsModel.class, LikeDbStorage.class, FilmDbStorage.class, UserDbStorage.class,
+        FilmRowMapper.class, UserRowMapper.class, FilmPopularityIndex.class, UserLikesIndex.class,
+        ChangePublisher.class, IdBatchLoader.class, FilmSearchIndex.class, FilmSuggestIndex.class,
+        ExistenceIndex.class, FriendshipDbStorage.class, FriendshipGraph.class, FriendshipPathFinder.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AlsTrainerTest {
+
+    private final AlsTrainer alsTrainer;
+    private final AlsModel alsModel;
+    private final UserLikesIndex userLikesIndex;
+    private final LikeDbStorage likeStorage;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+
+    @TempDir
+    Path tempDir;
+
+    private Path modelFile;
+    private Film[] films;
+    private User[] users;
+
+    @BeforeEach
+    void setUp() {
+        modelFile = tempDir.resolve("als.bin");
+        ReflectionTestUtils.setField(alsTrainer, "file", modelFile.toString());
+
+        films = new Film[4];
+        for (int i = 0; i < films.length; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            film.setMpa(new Mpa(1L, null));
+            films[i] = filmStorage.create(film);
+        }
+        users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userStorage.create(new User("user" + i + "@email.com", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+        like(0, 0);
+        like(0, 1);
+        like(1, 0);
+        like(1, 1);
+        like(1, 2);
+        like(2, 0);
+        like(2, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Пользователи удаляются первыми, чтобы индексы получили удаление их лайков
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+        filmStorage.getAll().forEach(film -> filmStorage.deleteFilmById(film.getId()));
+    }
+
+    @Test
+    void testTrainedModelSkipsLikedFilms() {
+        assertThat(alsModel.recommend(users[0].getId(), RecommendationResult.RECOMMENDATIONS)).isEmpty();
+
+        alsTrainer.train();
+
+        assertThat(alsModel.recommend(users[0].getId(), RecommendationResult.RECOMMENDATIONS))
+                .containsExactlyInAnyOrder(films[2].getId(), films[3].getId());
+        assertThat(alsModel.recommend(users[1].getId(), RecommendationResult.RECOMMENDATIONS))
+                .containsExactly(films[3].getId());
+        assertThat(alsModel.recommend(users[2].getId(), 1))
+                .hasSize(1)
+                .isSubsetOf(films[1].getId(), films[2].getId());
+    }
+
+    @Test
+    void testModelRoundTripsThroughFile() throws IOException {
+        alsTrainer.train();
+
+        assertThat(Files.size(modelFile)).isEqualTo(4L * Integer.BYTES + 7L * Long.BYTES
+                + 7L * AlsTrainer.FACTORS * Float.BYTES);
+        AlsModel loaded = new AlsModel(userLikesIndex);
+        loaded.load(modelFile);
+        for (User user : users) {
+            assertThat(loaded.recommend(user.getId(), RecommendationResult.RECOMMENDATIONS))
+                    .containsExactlyElementsOf(alsModel.recommend(user.getId(), RecommendationResult.RECOMMENDATIONS));
+        }
+    }
+
+    @Test
+    void testLoadRejectsFileNotMatchingHeader() throws IOException {
+        alsTrainer.train();
+        byte[] bytes = Files.readAllBytes(modelFile);
+        Path truncated = tempDir.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - Float.BYTES));
+
+        AlsModel loaded = new AlsModel(userLikesIndex);
+        loaded.load(truncated);
+        assertThat(loaded.recommend(users[0].getId(), RecommendationResult.RECOMMENDATIONS)).isEmpty();
+
+        // Неудачная загрузка оставляет прежнюю модель
+        alsModel.load(truncated);
+        assertThat(alsModel.recommend(users[0].getId(), RecommendationResult.RECOMMENDATIONS)).hasSize(2);
+    }
+
+    private void like(int user, int film) {
+        likeStorage.addLike(films[film].getId(), users[user].getId());
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({ItemSimilarityIndex.class, LikeDbStorage.class, FilmDbStorage.class, UserDbStorage.class,
+        FilmRowMapper.class, UserRowMapper.class, FilmPopularityIndex.class, UserLikesIndex.class,
+        ChangePublisher.class, IdBatchLoader.class, FilmSearchIndex.class, FilmSuggestIndex.class,
+        ExistenceIndex.class, FriendshipDbStorage.class, FriendshipGraph.class, FriendshipPathFinder.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ItemSimilarityIndexTest {
+
+    private final ItemSimilarityIndex itemSimilarityIndex;
+    private final LikeDbStorage likeStorage;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+
+    private Film[] films;
+    private User[] users;
+
+    @BeforeEach
+    void setUp() {
+        films = new Film[4];
+        for (int i = 0; i < films.length; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            film.setMpa(new Mpa(1L, null));
+            films[i] = filmStorage.create(film);
+        }
+        users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userStorage.create(new User("user" + i + "@email.com", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+        like(0, 0);
+        like(0, 1);
+        like(1, 0);
+        like(1, 1);
+        like(1, 2);
+        like(2, 0);
+        like(2, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Пользователи удаляются первыми, чтобы индексы получили удаление их лайков
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+        filmStorage.getAll().forEach(film -> filmStorage.deleteFilmById(film.getId()));
+    }
+
+    @Test
+    void testRecommendRanksByCosineSimilarity() {
+        // Film 2: 1/sqrt(3) + 1/sqrt(2) от фильмов 0 и 1, Film 3: 1/sqrt(3) только от фильма 0
+        assertThat(itemSimilarityIndex.recommend(users[0].getId()))
+                .containsExactly(films[2].getId(), films[3].getId());
+    }
+
+    @Test
+    void testRecommendFollowsUnlikeAndFilmDelete() {
+        likeStorage.removeLike(films[2].getId(), users[1].getId());
+
+        assertThat(itemSimilarityIndex.recommend(users[0].getId())).containsExactly(films[3].getId());
+
+        filmStorage.deleteFilmById(films[3].getId());
+
+        assertThat(itemSimilarityIndex.recommend(users[0].getId())).isEmpty();
+    }
+
+    @Test
+    void testRebuildMatchesIncrementalUpdates() {
+        itemSimilarityIndex.rebuild();
+
+        assertThat(itemSimilarityIndex.recommend(users[0].getId()))
+                .containsExactly(films[2].getId(), films[3].getId());
+    }
+
+    @Test
+    void testCoLikeCountsKeepFrequentFilmsWithinCapacity() {
+        ItemSimilarityIndex.CoLikeCounts counts = new ItemSimilarityIndex.CoLikeCounts(3);
+        for (long filmId = 10; filmId < 100; filmId++) {
+            counts.increment(1);
+            counts.increment(filmId);
+        }
+
+        assertThat(counts.size()).isEqualTo(3);
+        assertThat(counts.get(1)).isEqualTo(90);
+
+        counts.decrement(1);
+        counts.remove(99);
+
+        assertThat(counts.get(1)).isEqualTo(89);
+        assertThat(counts.size()).isEqualTo(2);
+    }
+
+    private void like(int user, int film) {
+        likeStorage.addLike(films[film].getId(), users[user].getId());
+    }
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({RecommendationDbStorage.class, ItemSimilarityIndex.class, UserSimilarityIndex.class, MinHashIndex.class,
+        AlsModel.class, SocialRecommender.class, FriendshipGraph.class, FriendshipDbStorage.class,
+        FriendshipPathFinder.class, LikeDbStorage.class, FilmDbStorage.class,
+        UserDbStorage.class, FilmRowMapper.class, UserRowMapper.class, FilmPopularityIndex.class,
+        UserLikesIndex.class, ChangePublisher.class, IdBatchLoader.class, FilmSearchIndex.class,
+        FilmSuggestIndex.class, ExistenceIndex.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RecommendationDbStorageTest {
+
+    private final RecommendationDbStorage recommendationStorage;
+    private final LikeDbStorage likeStorage;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final FriendshipDbStorage friendshipStorage;
+    private final SocialRecommender socialRecommender;
+    private final JdbcTemplate jdbcTemplate;
+
+    private Film[] films;
+    private User[] users;
+
+    @BeforeEach
+    void setUp() {
+        films = new Film[4];
+        for (int i = 0; i < films.length; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            film.setMpa(new Mpa(1L, null));
+            films[i] = filmStorage.create(film);
+        }
+        users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userStorage.create(new User("user" + i + "@email.com", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+        like(0, 0);
+        like(0, 1);
+        like(1, 0);
+        like(1, 1);
+        like(1, 2);
+        like(2, 0);
+        like(2, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Пользователи удаляются первыми, чтобы индексы получили удаление их лайков
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+        filmStorage.getAll().forEach(film -> filmStorage.deleteFilmById(film.getId()));
+    }
+
+    @Test
+    void testItemsModeRecommendsSimilarFilms() {
+        assertThat(recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.ITEMS))
+                .containsExactly(films[2].getId(), films[3].getId());
+    }
+
+    @Test
+    void testItemsModeRecomputesAfterOwnLike() {
+        recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.ITEMS);
+        like(0, 2);
+
+        assertThat(recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.ITEMS))
+                .containsExactly(films[3].getId());
+    }
+
+    @Test
+    void testUsersModeRecommendsNeighborLikes() {
+        assertThat(recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.USERS))
+                .containsExactly(films[2].getId(), films[3].getId());
+    }
+
+    @Test
+    void testRefreshRecomputesOnlyDirtyCachedRecommendations() {
+        recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.ITEMS);
+        like(0, 2);
+        like(1, 3);
+
+        recommendationStorage.refreshStale();
+
+        assertThat(stored(users[0].getId(), RecommendationMode.ITEMS)).containsExactly(films[3].getId());
+        assertThat(stored(users[1].getId(), RecommendationMode.ITEMS)).isNull();
+    }
+
+    @Test
+    void testRefreshDropsExpiredEntriesInsteadOfRecomputing() {
+        recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.ITEMS);
+        like(0, 2);
+        Object maxAgeMs = ReflectionTestUtils.getField(recommendationStorage, "maxAgeMs");
+        ReflectionTestUtils.setField(recommendationStorage, "maxAgeMs", 0L);
+        try {
+            recommendationStorage.refreshStale();
+        } finally {
+            ReflectionTestUtils.setField(recommendationStorage, "maxAgeMs", maxAgeMs);
+        }
+
+        assertThat(recommendationStorage.getCachedCount()).isZero();
+        assertThat(stored(users[0].getId(), RecommendationMode.ITEMS))
+                .containsExactly(films[2].getId(), films[3].getId());
+    }
+
+    @Test
+    void testDeletedUserIsEvicted() {
+        recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.ITEMS);
+        recommendationStorage.getRecommendation(users[1].getId(), RecommendationMode.ITEMS);
+
+        userStorage.deleteUserById(users[0].getId());
+
+        assertThat(recommendationStorage.getCachedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testBudgetTruncatedFriendsRecommendationIsNotCached() {
+        friendshipStorage.addFriend(users[0].getId(), users[1].getId());
+        Object budgetMs = ReflectionTestUtils.getField(socialRecommender, "budgetMs");
+        ReflectionTestUtils.setField(socialRecommender, "budgetMs", -1000L);
+        try {
+            recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.FRIENDS);
+        } finally {
+            ReflectionTestUtils.setField(socialRecommender, "budgetMs", budgetMs);
+        }
+
+        assertThat(recommendationStorage.getCachedCount()).isZero();
+        assertThat(stored(users[0].getId(), RecommendationMode.FRIENDS)).isNull();
+
+        assertThat(recommendationStorage.getRecommendation(users[0].getId(), RecommendationMode.FRIENDS))
+                .containsExactly(films[2].getId());
+        assertThat(recommendationStorage.getCachedCount()).isEqualTo(1);
+    }
+
+    private List<Long> stored(Long userId, RecommendationMode mode) {
+        List<List<Long>> rows = jdbcTemplate.query(
+                "SELECT film_ids FROM user_recommendations WHERE user_id = ? AND rec_mode = ?",
+                (rs, rowNum) -> List.copyOf(FilmRowMapper.toLongSet(rs.getArray("film_ids"))),
+                userId, mode.name());
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void like(int user, int film) {
+        likeStorage.addLike(films[film].getId(), users[user].getId());
+    }
+}
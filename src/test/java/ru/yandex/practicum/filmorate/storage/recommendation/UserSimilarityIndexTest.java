@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
+import ru.yandex.practicum.filmorate.storage.like.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.UserLikesIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({UserSimilarityIndex.class, MinHashIndex.class, LikeDbStorage.class, FilmDbStorage.class, UserDbStorage.class,
+        FilmRowMapper.class, UserRowMapper.class, FilmPopularityIndex.class, UserLikesIndex.class,
+        ChangePublisher.class, IdBatchLoader.class, FilmSearchIndex.class, FilmSuggestIndex.class,
+        ExistenceIndex.class, FriendshipDbStorage.class, FriendshipGraph.class, FriendshipPathFinder.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSimilarityIndexTest {
+
+    private final UserSimilarityIndex userSimilarityIndex;
+    private final LikeDbStorage likeStorage;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+
+    private Film[] films;
+    private User[] users;
+
+    @BeforeEach
+    void setUp() {
+        films = new Film[4];
+        for (int i = 0; i < films.length; i++) {
+            films[i] = createFilm(i);
+        }
+        users = new User[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userStorage.create(new User("user" + i + "@email.com", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+        like(0, 0);
+        like(0, 1);
+        like(1, 0);
+        like(1, 1);
+        like(1, 2);
+        like(2, 0);
+        like(2, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Пользователи удаляются первыми, чтобы индексы получили удаление их лайков
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+        filmStorage.getAll().forEach(film -> filmStorage.deleteFilmById(film.getId()));
+    }
+
+    @Test
+    void testRecommendRanksByNeighborSimilarity() {
+        // Film 2 от соседа с мерой Жаккара 2/3, Film 3 от соседа с мерой 1/3
+        assertThat(userSimilarityIndex.recommend(users[0].getId()))
+                .containsExactly(films[2].getId(), films[3].getId());
+        assertThat(userSimilarityIndex.recommend(users[1].getId())).containsExactly(films[3].getId());
+    }
+
+    @Test
+    void testRecommendFollowsLikeUnlikeAndFilmDelete() {
+        likeStorage.removeLike(films[2].getId(), users[1].getId());
+
+        assertThat(userSimilarityIndex.recommend(users[0].getId())).containsExactly(films[3].getId());
+
+        like(0, 2);
+        like(1, 2);
+        like(1, 3);
+
+        assertThat(userSimilarityIndex.recommend(users[0].getId())).containsExactly(films[3].getId());
+
+        filmStorage.deleteFilmById(films[3].getId());
+
+        assertThat(userSimilarityIndex.recommend(users[0].getId())).isEmpty();
+        assertThat(userSimilarityIndex.recommend(users[2].getId()))
+                .containsExactly(films[1].getId(), films[2].getId());
+    }
+
+    @Test
+    void testRebuildMatchesIncrementalUpdates() {
+        userSimilarityIndex.rebuild();
+
+        assertThat(userSimilarityIndex.recommend(users[0].getId()))
+                .containsExactly(films[2].getId(), films[3].getId());
+    }
+
+    @Test
+    void testRecommendReturnsAtMostLimit() {
+        for (int i = 0; i < RecommendationResult.RECOMMENDATIONS + 10; i++) {
+            likeStorage.addLike(createFilm(films.length + i).getId(), users[1].getId());
+        }
+
+        // Film 3 от соседа с мерой 1/3 опережает фильмы соседа, у которого теперь 63 лайка
+        assertThat(userSimilarityIndex.recommend(users[0].getId()))
+                .hasSize(RecommendationResult.RECOMMENDATIONS)
+                .startsWith(films[3].getId());
+    }
+
+    private Film createFilm(int i) {
+        Film film = new Film();
+        film.setName("Film " + i);
+        film.setDescription("Description " + i);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1L, null));
+        return filmStorage.create(film);
+    }
+
+    private void like(int user, int film) {
+        likeStorage.addLike(films[film].getId(), users[user].getId());
+    }
+}
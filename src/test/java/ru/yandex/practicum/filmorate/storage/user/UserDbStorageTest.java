@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,8 +9,16 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ExistenceIndex;
+import ru.yandex.practicum.filmorate.storage.IdBatchLoader;
+import ru.yandex.practicum.filmorate.storage.change.ChangePublisher;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipPathFinder;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -20,8 +29,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserDbStorage.class, UserRowMapper.class})
+@Import({UserDbStorage.class, UserRowMapper.class, ChangePublisher.class, IdBatchLoader.class,
+        ExistenceIndex.class, FriendshipDbStorage.class, FriendshipGraph.class, FriendshipPathFinder.class})
 @ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 class UserDbStorageTest {
 
     private final UserDbStorage userStorage;
@@ -33,6 +44,11 @@ class UserDbStorageTest {
                 LocalDate.of(1990, 1, 1));
     }
 
+    @AfterEach
+    void tearDown() {
+        userStorage.getAll().forEach(user -> userStorage.deleteUserById(user.getId()));
+    }
+
     @Test
     void testCreateUser() {
         User createdUser = userStorage.create(testUser);
@@ -103,6 +119,18 @@ class UserDbStorageTest {
         assertThat(foundUser).isEmpty();
     }
 
+    @Test
+    void testExistsFollowsCreateAndDelete() {
+        User createdUser = userStorage.create(testUser);
+
+        assertThat(userStorage.exists(createdUser.getId())).isTrue();
+
+        userStorage.deleteUserById(createdUser.getId());
+
+        assertThat(userStorage.exists(createdUser.getId())).isFalse();
+        assertThat(userStorage.exists(-1L)).isFalse();
+    }
+
     @Test
     void testCreateUserWithEmptyName() {
         User user = new User("empty@email.com", "emptyLogin", "",
@@ -112,4 +140,18 @@ class UserDbStorageTest {
 
         assertThat(createdUser.getName()).isEqualTo("emptyLogin");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetPage() {
+        User first = userStorage.create(testUser);
+        User second = userStorage.create(new User("second@email.com", "secondLogin", "Second User",
+                LocalDate.of(1991, 1, 1)));
+        User third = userStorage.create(new User("third@email.com", "thirdLogin", "Third User",
+                LocalDate.of(1992, 1, 1)));
+
+        assertThat(userStorage.getPage(0L, 2)).extracting(User::getId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(userStorage.getPage(second.getId(), 2)).extracting(User::getId)
+                .containsExactly(third.getId());
+    }
+}
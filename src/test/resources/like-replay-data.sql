@@ -0,0 +1,7 @@
+INSERT INTO users (id, email, login, name, birthday) VALUES
+(1, 'user1@email.com', 'user1', 'User 1', '1990-01-01'),
+(2, 'user2@email.com', 'user2', 'User 2', '1990-01-01');
+
+INSERT INTO films (id, name, description, release_date, duration, mpa_id) VALUES
+(1, 'Film 1', 'Description 1', '2000-01-01', 100, 1),
+(2, 'Film 2', 'Description 2', '2000-01-01', 100, 1);